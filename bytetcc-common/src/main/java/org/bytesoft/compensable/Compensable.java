@@ -32,4 +32,6 @@ public @interface Compensable {
 
 	public String cancellableKey() default "";
 
+	public Durability durability() default Durability.DEFAULT;
+
 }
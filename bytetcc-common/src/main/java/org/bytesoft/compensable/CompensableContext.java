@@ -16,6 +16,7 @@
 package org.bytesoft.compensable;
 
 import java.io.Serializable;
+import java.util.concurrent.Callable;
 
 public interface CompensableContext {
 
@@ -25,4 +26,26 @@ public interface CompensableContext {
 
 	public void setVariable(String key, Serializable variable) throws IllegalStateException;
 
+	/**
+	 * Binds the current compensable transaction to the task, so that it can be run by another thread to invoke remote
+	 * participants in parallel. The transaction is joined back when the task completes, all forked tasks should be
+	 * completed before the try phase ends, otherwise the transaction will be rolled back.
+	 */
+	public Runnable fork(Runnable task) throws IllegalStateException;
+
+	public <V> Callable<V> fork(Callable<V> task) throws IllegalStateException;
+
+	/**
+	 * Same as fork, except that the task is counted as outstanding from now on, until it is run or released. It is
+	 * intended for work handed over to threads owned by the application, such as a DeferredResult producer, so that the
+	 * try phase can not end before the task has been run.
+	 */
+	public Runnable reserve(Runnable task) throws IllegalStateException;
+
+	public <V> Callable<V> reserve(Callable<V> task) throws IllegalStateException;
+
+	public void release(Runnable task);
+
+	public void release(Callable<?> task);
+
 }
@@ -46,4 +46,6 @@ public interface CompensableInvocation extends Serializable {
 
 	public void setEnlisted(boolean enlisted);
 
+	public Durability getDurability();
+
 }
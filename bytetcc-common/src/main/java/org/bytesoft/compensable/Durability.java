@@ -0,0 +1,35 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.compensable;
+
+/**
+ * How the compensable log of a service is flushed before the call returns.
+ */
+public enum Durability {
+
+	/** uses the default durability of the compensable logger. */
+	DEFAULT,
+
+	/** each write is forced to disk before it is acknowledged. */
+	SYNC,
+
+	/** writes are acknowledged once a flush shared with the concurrent writers has completed. */
+	GROUP_COMMIT,
+
+	/** writes are acknowledged immediately and flushed in the background, a crash may lose the latest writes. */
+	ASYNC;
+
+}
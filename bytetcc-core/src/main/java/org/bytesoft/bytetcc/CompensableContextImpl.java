@@ -16,6 +16,7 @@
 package org.bytesoft.bytetcc;
 
 import java.io.Serializable;
+import java.util.concurrent.Callable;
 
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableContext;
@@ -68,6 +69,44 @@ public class CompensableContextImpl implements CompensableContext, CompensableBe
 		compensable.setVariable(key, variable);
 	}
 
+	public Runnable fork(Runnable task) throws IllegalStateException {
+		return this.getForkableTransaction().fork(task);
+	}
+
+	public <V> Callable<V> fork(Callable<V> task) throws IllegalStateException {
+		return this.getForkableTransaction().fork(task);
+	}
+
+	public Runnable reserve(Runnable task) throws IllegalStateException {
+		return this.getForkableTransaction().reserve(task);
+	}
+
+	public <V> Callable<V> reserve(Callable<V> task) throws IllegalStateException {
+		return this.getForkableTransaction().reserve(task);
+	}
+
+	public void release(Runnable task) {
+		CompensableTransactionImpl.releaseForkedTask(task);
+	}
+
+	public void release(Callable<?> task) {
+		CompensableTransactionImpl.releaseForkedTask(task);
+	}
+
+	private CompensableTransaction getForkableTransaction() throws IllegalStateException {
+		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
+		if (compensableManager == null) {
+			throw new IllegalStateException("org.bytesoft.compensable.CompensableManager is undefined!");
+		}
+		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
+		if (compensable == null) {
+			throw new IllegalStateException("There is no active compensable transaction!");
+		} else if (compensable.getTransactionContext().isCompensating()) {
+			throw new IllegalStateException("CompensableContext.fork is forbidden in compensable phase!");
+		}
+		return compensable;
+	}
+
 	public CompensableBeanFactory getBeanFactory() {
 		return beanFactory;
 	}
@@ -28,6 +28,7 @@ import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
+import org.bytesoft.bytetcc.supports.CompensableTimer;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
@@ -40,6 +41,7 @@ import org.bytesoft.transaction.Transaction;
 import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.TransactionException;
 import org.bytesoft.transaction.TransactionLock;
+import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
@@ -56,7 +58,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 	private CompensableBeanFactory beanFactory;
 	private String endpoint;
 
-	private transient boolean ready = false;
+	private transient volatile boolean ready = false;
 	private final Lock lock = new ReentrantLock();
 
 	private transient boolean statefully;
@@ -83,6 +85,8 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		}
 
 		TransactionXid globalXid = transactionContext.getXid();
+		this.checkParticipantStartIfNecessary(globalXid);
+
 		Transaction transaction = null;
 		try {
 			transaction = compensableRepository.getTransaction(globalXid);
@@ -114,14 +118,24 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 				= (org.bytesoft.compensable.TransactionContext) transaction.getTransactionContext();
 		int propagationLevel = compensableContext.getPropagationLevel();
 		compensableContext.setPropagationLevel(propagationLevel + 1);
+		if (propagationLevel == 0) {
+			((CompensableTransactionImpl) transaction).openForkedTasks(); // closed by the end of the previous request
+		} // end-if (propagationLevel == 0)
 
 		compensableManager.associateThread(transaction);
 
+		CompensableTimer compensableTimer = this.beanFactory.getCompensableTimer();
+		if (compensableTimer != null) {
+			compensableTimer.timingTransaction((CompensableTransaction) transaction);
+		} // end-if (compensableTimer != null)
+
 		return transaction;
 	}
 
 	public Transaction end(TransactionContext transactionContext, int flags) throws XAException {
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
+		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
+		TransactionRepository compensableRepository = this.beanFactory.getCompensableRepository();
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
 
 		CompensableTransaction transaction = compensableManager.getCompensableTransactionQuietly();
@@ -140,6 +154,32 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		int propagationLevel = compensableContext.getPropagationLevel();
 		compensableContext.setPropagationLevel(propagationLevel - 1);
 
+		CompensableTimer compensableTimer = this.beanFactory.getCompensableTimer();
+		if (compensableTimer != null && compensableContext.getPropagationLevel() == 0) {
+			compensableTimer.stopTiming(transaction);
+		} // end-if (compensableTimer != null && compensableContext.getPropagationLevel() == 0)
+
+		if (compensableContext.getPropagationLevel() == 0 && transaction.joinForkedTasks() == false) {
+			logger.warn("{}| forked task has not been joined, the compensable transaction will be rolled back.",
+					ByteUtils.byteArrayToString(compensableContext.getXid().getGlobalTransactionId()));
+			transaction.setRollbackOnlyQuietly();
+		} // end-if (compensableContext.getPropagationLevel() == 0 && transaction.joinForkedTasks() == false)
+
+		boolean readonly = compensableContext.getPropagationLevel() == 0 //
+				&& ((CompensableTransactionImpl) transaction).isParticipantReadonly();
+		if (readonly) /* nothing to confirm/cancel, the branch votes read-only and is forgotten at once. */ {
+			TransactionXid globalXid = compensableContext.getXid();
+			compensableLogger.deleteTransaction(transaction.getTransactionArchive());
+			compensableRepository.removeErrorTransaction(globalXid);
+			compensableRepository.removeTransaction(globalXid);
+			logger.info("{}| compensable transaction is read-only, forget transaction.",
+					ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()));
+		} // end-if (readonly)
+
+		if (org.bytesoft.compensable.TransactionContext.class.isInstance(transactionContext)) {
+			((org.bytesoft.compensable.TransactionContext) transactionContext).setParticipantReadonly(readonly);
+		} // end-if (org.bytesoft.compensable.TransactionContext.class.isInstance(transactionContext))
+
 		compensableLock.unlockTransaction(transactionContext.getXid(), this.endpoint);
 
 		return transaction;
@@ -154,8 +194,6 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 	}
 
 	public void commit(Xid xid, boolean onePhase) throws XAException {
-		this.checkParticipantReadyIfNecessary();
-
 		if (xid == null) {
 			throw new XAException(XAException.XAER_INVAL);
 		} else if (onePhase == false) {
@@ -166,6 +204,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
 
 		TransactionXid globalXid = xidFactory.createGlobalXid(xid.getGlobalTransactionId());
+		this.checkParticipantReadyIfNecessary(globalXid);
 
 		CompensableTransaction transaction = null;
 		boolean success = false;
@@ -265,14 +304,13 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 	}
 
 	public void forget(Xid xid) throws XAException {
-		this.checkParticipantReadyIfNecessary();
-
 		if (xid == null) {
 			throw new XAException(XAException.XAER_INVAL);
 		}
 		TransactionRepository compensableRepository = this.beanFactory.getCompensableRepository();
 		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
 		TransactionXid globalXid = xidFactory.createGlobalXid(xid.getGlobalTransactionId());
+		this.checkParticipantReadyIfNecessary(globalXid);
 		CompensableTransaction transaction = null;
 		try {
 			transaction = (CompensableTransaction) compensableRepository.getTransaction(globalXid);
@@ -345,8 +383,6 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 	}
 
 	public void rollback(Xid xid) throws XAException {
-		this.checkParticipantReadyIfNecessary();
-
 		if (xid == null) {
 			throw new XAException(XAException.XAER_INVAL);
 		}
@@ -354,6 +390,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
 
 		TransactionXid globalXid = xidFactory.createGlobalXid(xid.getGlobalTransactionId());
+		this.checkParticipantReadyIfNecessary(globalXid);
 
 		CompensableTransaction transaction = null;
 		boolean success = false;
@@ -437,6 +474,59 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		}
 	}
 
+	/**
+	 * Only the branches not recovered yet are fenced while the startup recovery is running, the ones recovered from
+	 * log are recovered lazily at first access.
+	 */
+	private void checkParticipantReadyIfNecessary(TransactionXid globalXid) throws XAException {
+		if (this.ready) {
+			return;
+		}
+
+		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
+		if (TransactionRecoveryImpl.class.isInstance(compensableRecovery)
+				&& ((TransactionRecoveryImpl) compensableRecovery).recoverIfFenced(globalXid)) {
+			return;
+		} // end-if (recovered lazily)
+
+		TransactionRepository compensableRepository = this.beanFactory.getCompensableRepository();
+		try {
+			if (compensableRepository.getTransaction(globalXid) != null) {
+				return; // created after startup, or recovered already
+			}
+		} catch (TransactionException tex) {
+			logger.debug("Error occurred while getting transaction: {}.",
+					ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()), tex);
+		}
+
+		this.checkParticipantReady();
+	}
+
+	/**
+	 * A propagated try request must not create a branch which is still to be recovered from log, or the startup
+	 * recovery would overwrite it later. Branches not read from log yet are admitted as new ones.
+	 */
+	private void checkParticipantStartIfNecessary(TransactionXid globalXid) throws XAException {
+		if (this.ready) {
+			return;
+		}
+
+		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
+		if (TransactionRecoveryImpl.class.isInstance(compensableRecovery) == false) {
+			this.checkParticipantReady();
+			return;
+		}
+
+		TransactionRecoveryImpl transactionRecovery = (TransactionRecoveryImpl) compensableRecovery;
+		if (transactionRecovery.recoverIfFenced(globalXid)) {
+			return;
+		} else if (transactionRecovery.admitIfNotFenced(globalXid)) {
+			return;
+		}
+
+		this.checkParticipantReadyIfNecessary(globalXid);
+	}
+
 	private void checkParticipantReady() throws XAException {
 		try {
 			this.lock.lock();
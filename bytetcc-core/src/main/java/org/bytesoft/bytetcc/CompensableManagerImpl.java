@@ -30,6 +30,7 @@ import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
+import org.bytesoft.bytetcc.supports.CompensableTimer;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
@@ -57,7 +58,9 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 	private CompensableBeanFactory beanFactory;
 	private String endpoint;
 	private transient boolean statefully;
+	private int timeoutSeconds; // default try-phase timeout, 0 disables it
 
+	private final ThreadLocal<Integer> threadTimeoutSeconds = new ThreadLocal<Integer>();
 	private final Map<Thread, Transaction> thread2txMap = new ConcurrentHashMap<Thread, Transaction>();
 	private final Map<Xid, Transaction> xid2txMap = new ConcurrentHashMap<Xid, Transaction>();
 
@@ -251,6 +254,11 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		compensableContext.setStatefully(this.statefully);
 		compensableContext.setXid(compensableXid);
 		compensableContext.setPropagatedBy(compensableCoordinator.getIdentifier());
+		Integer threadTimeout = this.threadTimeoutSeconds.get();
+		int timeout = threadTimeout == null ? this.timeoutSeconds : threadTimeout;
+		if (timeout > 0) {
+			compensableContext.setExpiredTime(System.currentTimeMillis() + timeout * 1000L);
+		} // end-if (timeout > 0)
 		CompensableTransactionImpl compensable = new CompensableTransactionImpl(compensableContext);
 		compensable.setBeanFactory(this.beanFactory);
 
@@ -288,6 +296,10 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			throw new SystemException(XAException.XAER_PROTO); // should never happen
 		}
 
+		CompensableTimer compensableTimer = this.beanFactory.getCompensableTimer();
+		if (compensableTimer != null) {
+			compensableTimer.timingTransaction(compensable);
+		} // end-if (compensableTimer != null)
 	}
 
 	public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException,
@@ -504,7 +516,17 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			throw new IllegalStateException();
 		} else if (compensating) {
 			throw new IllegalStateException();
-		} else if (transactionContext.isRollbackOnly()) {
+		}
+
+		this.stopTiming(transaction); // joining the forked tasks may last until the transaction expires
+
+		if (transaction.joinForkedTasks() == false) {
+			logger.warn("{}| forked task has not been joined, the compensable transaction will be rolled back.",
+					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
+			transaction.setRollbackOnlyQuietly();
+		} // end-if (transaction.joinForkedTasks() == false)
+
+		if (transactionContext.isRollbackOnly()) {
 			this.compensableRollback();
 			throw new HeuristicRollbackException();
 		}
@@ -654,6 +676,8 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			throw new IllegalStateException();
 		}
 
+		this.stopTiming(transaction);
+
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
 		TransactionXid xid = transactionContext.getXid();
 		boolean success = false;
@@ -704,6 +728,13 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 
 	}
 
+	private void stopTiming(CompensableTransaction transaction) {
+		CompensableTimer compensableTimer = this.beanFactory.getCompensableTimer();
+		if (compensableTimer != null) {
+			compensableTimer.stopTiming(transaction);
+		} // end-if (compensableTimer != null)
+	}
+
 	public void setRollbackOnlyQuietly() {
 		CompensableTransaction transaction = this.getCompensableTransactionQuietly();
 		if (transaction != null) {
@@ -720,13 +751,45 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 	}
 
 	public void setTransactionTimeout(int seconds) throws SystemException {
+		if (seconds < 0) {
+			throw new SystemException(XAException.XAER_INVAL);
+		}
+
+		CompensableTransaction transaction = this.getCompensableTransactionQuietly();
+		if (transaction == null) {
+			if (seconds == 0) {
+				this.threadTimeoutSeconds.remove();
+			} else {
+				this.threadTimeoutSeconds.set(seconds);
+			}
+			return;
+		}
+
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		if (transactionContext.isCoordinator() == false) {
+			return; // the deadline of participant is propagated by the coordinator
+		} else if (transactionContext.isCompensating()) {
+			return;
+		}
+
+		CompensableTimer compensableTimer = this.beanFactory.getCompensableTimer();
+		if (compensableTimer != null) {
+			compensableTimer.stopTiming(transaction);
+		} // end-if (compensableTimer != null)
+
+		transactionContext.setExpiredTime(seconds > 0 ? System.currentTimeMillis() + seconds * 1000L : 0);
+
+		if (compensableTimer != null && seconds > 0) {
+			compensableTimer.timingTransaction(transaction);
+		} // end-if (compensableTimer != null && seconds > 0)
 	}
 
 	public int getTimeoutSeconds() {
-		return 0;
+		return this.timeoutSeconds;
 	}
 
 	public void setTimeoutSeconds(int timeoutSeconds) {
+		this.timeoutSeconds = timeoutSeconds;
 	}
 
 	public boolean isStatefully() {
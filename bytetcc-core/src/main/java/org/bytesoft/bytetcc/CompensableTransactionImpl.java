@@ -18,11 +18,19 @@ package org.bytesoft.bytetcc;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -45,6 +53,7 @@ import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.compensable.CompensableTransaction;
 import org.bytesoft.compensable.ContainerContext;
 import org.bytesoft.compensable.TransactionContext;
@@ -75,23 +84,34 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	static final Logger logger = LoggerFactory.getLogger(CompensableTransactionImpl.class);
 
 	private final TransactionContext transactionContext;
-	private final List<CompensableArchive> archiveList = new ArrayList<CompensableArchive>();
-	private final Map<RemoteSvc, XAResourceArchive> resourceMap = new HashMap<RemoteSvc, XAResourceArchive>();
-	private final List<XAResourceArchive> resourceList = new ArrayList<XAResourceArchive>();
+	private final List<CompensableArchive> archiveList = new CopyOnWriteArrayList<CompensableArchive>();
+	private final ConcurrentMap<RemoteSvc, XAResourceArchive> resourceMap = new ConcurrentHashMap<RemoteSvc, XAResourceArchive>();
+	/* remote branches joined by more than one request, guarded by resourceMap. */
+	private transient final Set<RemoteSvc> sharedResources = new HashSet<RemoteSvc>();
+	private final List<XAResourceArchive> resourceList = new CopyOnWriteArrayList<XAResourceArchive>();
 	private final Map<Thread, Transaction> transactionMap = new ConcurrentHashMap<Thread, Transaction>();
 	private CompensableBeanFactory beanFactory;
 
 	private int transactionVote;
-	private int transactionStatus = Status.STATUS_ACTIVE;
+	private final AtomicInteger transactionStatus = new AtomicInteger(Status.STATUS_ACTIVE);
+	/* number of forked tasks being run, or -1 once the try-phase stops accepting forked tasks. */
+	private final AtomicInteger forkedTasks = new AtomicInteger();
 	/* current compensable-decision in confirm/cancel phase. */
 	private transient Boolean positive;
 	/* current compensable-archive in confirm/cancel phase. */
 	private transient CompensableArchive archive;
 
-	private transient final Map<Xid, List<CompensableArchive>> xidToArchivesMap = new HashMap<Xid, List<CompensableArchive>>();
-	private transient final Map<Xid, TransactionBranch> xidToBranchMap = new HashMap<Xid, TransactionBranch>();
+	/* the archive list of a local branch is only touched by the thread running that branch. */
+	private transient final ConcurrentMap<Xid, List<CompensableArchive>> xidToArchivesMap = new ConcurrentHashMap<Xid, List<CompensableArchive>>();
+	private transient final Map<Xid, TransactionBranch> xidToBranchMap = new ConcurrentHashMap<Xid, TransactionBranch>();
 
-	private Map<String, Serializable> variables = new HashMap<String, Serializable>();
+	/* copy-on-write, a map is never modified once published. */
+	private volatile Map<String, Serializable> variables = new HashMap<String, Serializable>();
+	private transient final Object variablesLock = new Object();
+
+	/* lists of the last structural snapshot, they are replaced as a whole and never modified once published. */
+	private transient volatile ArchiveSnapshot archiveSnapshot;
+	private transient volatile boolean archiveSnapshotDirty = true;
 
 	private Thread currentThread;
 	private final Lock lock = new ReentrantLock();
@@ -102,17 +122,27 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		this.transactionContext = txContext;
 	}
 
+	/**
+	 * The archive shares the lists of the last structural snapshot, which are only re-copied after a participant or a
+	 * compensable has been added or removed. A status update therefore allocates the same regardless of the size of
+	 * the transaction, and a logger running on another thread never sees a list being modified.
+	 */
 	public TransactionArchive getTransactionArchive() {
-		TransactionArchive transactionArchive = new TransactionArchive();
+		ArchiveSnapshot snapshot = this.archiveSnapshot;
+		if (snapshot == null || this.archiveSnapshotDirty) {
+			this.archiveSnapshotDirty = false; // reset before copying, a concurrent enlistment marks it again.
+			snapshot = new ArchiveSnapshot(this.resourceList, this.archiveList);
+			this.archiveSnapshot = snapshot;
+		} // end-if (snapshot == null || this.archiveSnapshotDirty)
+
+		TransactionArchive transactionArchive = new TransactionArchiveView(snapshot);
 		transactionArchive.setVariables(this.variables);
 		transactionArchive.setCoordinator(this.transactionContext.isCoordinator());
 		transactionArchive.setPropagated(this.transactionContext.isPropagated());
 		transactionArchive.setCompensable(this.transactionContext.isCompensable());
-		transactionArchive.setCompensableStatus(this.transactionStatus);
+		transactionArchive.setCompensableStatus(this.transactionStatus.get());
 		transactionArchive.setVote(this.transactionVote);
 		transactionArchive.setXid(this.transactionContext.getXid());
-		transactionArchive.getRemoteResources().addAll(this.resourceList);
-		transactionArchive.getCompensableResourceList().addAll(this.archiveList);
 		transactionArchive.setPropagatedBy(this.transactionContext.getPropagatedBy());
 		transactionArchive.setRecoveredAt(this.transactionContext.getCreatedTime());
 		transactionArchive.setRecoveredTimes(this.transactionContext.getRecoveredTimes());
@@ -125,7 +155,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		// Recover if transaction is recovered from tx-log.
 		this.recoverIfNecessary();
 
-		if (this.transactionStatus != Status.STATUS_COMMITTED) {
+		if (this.transactionStatus.get() != Status.STATUS_COMMITTED) {
 			this.fireCommit(); // TODO
 		}
 
@@ -134,14 +164,14 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	public synchronized void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException,
 			SecurityException, IllegalStateException, SystemException {
 
-		if (this.transactionStatus == Status.STATUS_ACTIVE) {
-			this.fireCommit();
-		} else if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+		if (this.transactionStatus.compareAndSet(Status.STATUS_ACTIVE, Status.STATUS_COMMITTING)) {
+			this.fireCommit(); // a concurrent setRollbackOnly can no longer win once committing
+		} else if (this.transactionStatus.get() == Status.STATUS_MARKED_ROLLBACK) {
 			this.fireRollback();
 			throw new HeuristicRollbackException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
+		} else if (this.transactionStatus.get() == Status.STATUS_ROLLEDBACK) /* should never happen */ {
 			throw new RollbackException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
+		} else if (this.transactionStatus.get() == Status.STATUS_COMMITTED) /* should never happen */ {
 			logger.debug("Current transaction has already been committed.");
 		} else {
 			throw new IllegalStateException();
@@ -154,7 +184,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
 		this.transactionContext.setCompensating(true);
-		this.transactionStatus = Status.STATUS_COMMITTING;
+		this.transactionStatus.set(Status.STATUS_COMMITTING);
 		compensableLogger.updateTransactionStatus(this.getTransactionArchive()); // compensableLogger.updateTransaction(this.getTransactionArchive());
 
 		SystemException systemEx = null;
@@ -197,7 +227,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			throw systemEx;
 		}
 
-		this.transactionStatus = Status.STATUS_COMMITTED;
+		this.transactionStatus.set(Status.STATUS_COMMITTED);
 		compensableLogger.updateTransactionStatus(this.getTransactionArchive()); // compensableLogger.updateTransaction(this.getTransactionArchive());
 		logger.info("{}| compensable transaction committed!",
 				ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
@@ -426,20 +456,20 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		// Recover if transaction is recovered from tx-log.
 		this.recoverIfNecessary();
 
-		if (this.transactionStatus != Status.STATUS_ROLLEDBACK) {
+		if (this.transactionStatus.get() != Status.STATUS_ROLLEDBACK) {
 			this.fireRollback(); // TODO
 		}
 
 	}
 
 	public synchronized void rollback() throws IllegalStateException, SystemException {
-		if (this.transactionStatus == Status.STATUS_UNKNOWN) {
+		if (this.transactionStatus.get() == Status.STATUS_UNKNOWN) {
 			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
+		} else if (this.transactionStatus.get() == Status.STATUS_NO_TRANSACTION) {
 			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
+		} else if (this.transactionStatus.get() == Status.STATUS_COMMITTED) /* should never happen */ {
 			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
+		} else if (this.transactionStatus.get() == Status.STATUS_ROLLEDBACK) /* should never happen */ {
 			logger.debug("Current transaction has already been rolled back.");
 		} else {
 			this.fireRollback();
@@ -479,7 +509,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	private void fireRollback() throws IllegalStateException, SystemException {
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
-		this.transactionStatus = Status.STATUS_ROLLING_BACK;
+		this.transactionStatus.set(Status.STATUS_ROLLING_BACK);
 
 		this.markCurrentBranchTransactionRollbackIfNecessary();
 
@@ -519,7 +549,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		if (systemEx != null) {
 			throw systemEx;
 		} else {
-			this.transactionStatus = Status.STATUS_ROLLEDBACK;
+			this.transactionStatus.set(Status.STATUS_ROLLEDBACK);
 			compensableLogger.updateTransactionStatus(this.getTransactionArchive()); // ccompensableLogger.updateTransaction(this.getTransactionArchive());
 			logger.info("{}| compensable transaction rolled back!",
 					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
@@ -691,9 +721,9 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public boolean enlistResource(XAResource xaRes) throws RollbackException, IllegalStateException, SystemException {
-		if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+		if (this.transactionStatus.get() == Status.STATUS_MARKED_ROLLBACK) {
 			throw new RollbackException();
-		} else if (this.transactionStatus != Status.STATUS_ACTIVE) {
+		} else if (this.transactionStatus.get() != Status.STATUS_ACTIVE) {
 			throw new IllegalStateException();
 		}
 
@@ -720,13 +750,24 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		}
 
 		RemoteSvc remoteSvc = descriptor.getRemoteSvc();
-		XAResourceArchive resourceArchive = this.resourceMap.get(remoteSvc);
-		if (resourceArchive == null) {
-			resourceArchive = new XAResourceArchive();
-			resourceArchive.setXid(branchXid);
-			resourceArchive.setDescriptor(descriptor);
+		XAResourceArchive resourceArchive = null;
+		XAResourceArchive created = null;
+		synchronized (this.resourceMap) {
+			resourceArchive = this.resourceMap.get(remoteSvc);
+			if (resourceArchive == null) {
+				created = new XAResourceArchive();
+				created.setXid(branchXid);
+				created.setDescriptor(descriptor);
+				this.resourceMap.put(remoteSvc, created);
+			} else {
+				this.sharedResources.add(remoteSvc); // a failure of the enlisting request must not delist it
+			}
+		} // end-synchronized (this.resourceMap)
+
+		if (resourceArchive == null) /* enlisted by the current thread */ {
+			resourceArchive = created;
 			this.resourceList.add(resourceArchive);
-			this.resourceMap.put(remoteSvc, resourceArchive);
+			this.archiveSnapshotDirty = true;
 
 			compensableLogger.createParticipant(resourceArchive);
 
@@ -764,13 +805,22 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			if (flag == XAResource.TMFAIL) {
 				RemoteSvc remoteSvc = descriptor.getRemoteSvc();
 
-				XAResourceArchive archive = this.resourceMap.get(remoteSvc);
+				XAResourceArchive archive = null;
+				synchronized (this.resourceMap) {
+					if (this.sharedResources.contains(remoteSvc)) {
+						logger.info("{}| remote resource {} is kept, it has been joined by another request.",
+								ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
+								descriptor.getIdentifier());
+						return true;
+					} // end-if (this.sharedResources.contains(remoteSvc))
+					archive = this.resourceMap.remove(remoteSvc);
+				} // end-synchronized (this.resourceMap)
+
 				if (archive != null) {
 					this.resourceList.remove(archive);
+					this.archiveSnapshotDirty = true;
 				} // end-if (archive != null)
 
-				this.resourceMap.remove(remoteSvc);
-
 				compensableLogger.deleteParticipant(archive); // compensableLogger.updateTransaction(this.getTransactionArchive());
 			} // end-if (flag == XAResource.TMFAIL)
 		} // end-if (RemoteResourceDescriptor.class.isInstance(xaRes))
@@ -778,6 +828,157 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		return true;
 	}
 
+	public void onParticipantVote(XAResource xaRes, boolean readonly) {
+		if (RemoteResourceDescriptor.class.isInstance(xaRes) == false) {
+			return;
+		}
+
+		RemoteResourceDescriptor descriptor = (RemoteResourceDescriptor) xaRes;
+		XAResourceArchive archive = this.resourceMap.get(descriptor.getRemoteSvc());
+		if (archive == null || archive.isReadonly() == readonly) {
+			return;
+		}
+
+		archive.setReadonly(readonly); // memory only: a lost vote costs a phase-2 call answered by XAER_NOTA.
+
+		logger.info("{}| remote branch votes {}: {}.",
+				ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
+				readonly ? "read-only" : "read-write", descriptor.getIdentifier());
+	}
+
+	/**
+	 * A participant branch is read-only when its try phase registered no compensable service and enlisted no remote
+	 * branch, nothing will be confirmed/cancelled by it in phase 2.
+	 */
+	public boolean isParticipantReadonly() {
+		if (this.transactionContext.isCoordinator()) {
+			return false;
+		} else if (this.transactionContext.isCompensating()) {
+			return false;
+		} else if (this.transactionStatus.get() != Status.STATUS_ACTIVE) {
+			return false;
+		}
+		return this.archiveList.isEmpty() && this.resourceList.isEmpty() && this.transactionMap.isEmpty();
+	}
+
+	public Runnable fork(Runnable task) throws IllegalStateException {
+		return this.createForkedTask(task, null);
+	}
+
+	public <V> Callable<V> fork(Callable<V> task) throws IllegalStateException {
+		return this.createForkedTask(null, task);
+	}
+
+	public Runnable reserve(Runnable task) throws IllegalStateException {
+		return this.reserveForkedTask(task, null);
+	}
+
+	public <V> Callable<V> reserve(Callable<V> task) throws IllegalStateException {
+		return this.reserveForkedTask(null, task);
+	}
+
+	public void release(Runnable task) {
+		this.releaseForkedTask(task);
+	}
+
+	public void release(Callable<?> task) {
+		this.releaseForkedTask(task);
+	}
+
+	private <V> ForkedTask<V> reserveForkedTask(Runnable runnable, Callable<V> callable) throws IllegalStateException {
+		ForkedTask<V> forkedTask = this.createForkedTask(runnable, callable);
+		this.beginForkedTask();
+		forkedTask.reserved = true;
+		return forkedTask;
+	}
+
+	static void releaseForkedTask(Object task) {
+		if (ForkedTask.class.isInstance(task)) {
+			((ForkedTask<?>) task).release();
+		} // end-if (ForkedTask.class.isInstance(task))
+	}
+
+	private <V> ForkedTask<V> createForkedTask(Runnable runnable, Callable<V> callable) throws IllegalStateException {
+		if (this.transactionContext.isCompensating()) {
+			throw new IllegalStateException("Compensable transaction can only be forked in try phase!");
+		} else if (this.transactionStatus.get() != Status.STATUS_ACTIVE) {
+			throw new IllegalStateException("Compensable transaction is not active!");
+		} else if (this.forkedTasks.get() < 0) {
+			throw new IllegalStateException("Compensable transaction does not accept forked tasks any more!");
+		}
+
+		return new ForkedTask<V>(runnable, callable);
+	}
+
+	/**
+	 * Waits for the running and reserved tasks to complete, at most until the transaction expires.
+	 */
+	public boolean joinForkedTasks() {
+		long expiredTime = this.transactionContext.getExpiredTime();
+		synchronized (this.forkedTasks) {
+			while (this.forkedTasks.get() > 0) {
+				long waitMillis = expiredTime - System.currentTimeMillis();
+				if (waitMillis <= 0) {
+					break;
+				}
+
+				try {
+					this.forkedTasks.wait(waitMillis);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			} // end-while (this.forkedTasks.get() > 0)
+		} // end-synchronized (this.forkedTasks)
+
+		return this.forkedTasks.get() < 0 || this.forkedTasks.compareAndSet(0, -1);
+	}
+
+	public void openForkedTasks() {
+		this.forkedTasks.compareAndSet(-1, 0);
+	}
+
+	private void beginForkedTask() throws IllegalStateException {
+		while (true) {
+			int count = this.forkedTasks.get();
+			if (count < 0) {
+				throw new IllegalStateException("Compensable transaction does not accept forked tasks any more!");
+			} else if (this.forkedTasks.compareAndSet(count, count + 1)) {
+				return;
+			}
+		} // end-while (true)
+	}
+
+	private void endForkedTask() {
+		if (this.forkedTasks.decrementAndGet() == 0) {
+			synchronized (this.forkedTasks) {
+				this.forkedTasks.notifyAll();
+			} // end-synchronized (this.forkedTasks)
+		} // end-if (this.forkedTasks.decrementAndGet() == 0)
+	}
+
+	private boolean attachForkedThread() throws IllegalStateException {
+		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
+		CompensableTransaction current = compensableManager.getCompensableTransactionQuietly();
+		if (current == this) {
+			return false; // run by the forking thread itself
+		} else if (current != null) {
+			throw new IllegalStateException("The thread has been associated with another compensable transaction!");
+		} else if (this.transactionContext.isCompensating() || this.transactionStatus.get() != Status.STATUS_ACTIVE) {
+			throw new IllegalStateException("Compensable transaction is not active!");
+		}
+
+		compensableManager.attachThread(this);
+		return true;
+	}
+
+	private void detachForkedThread(boolean attached) {
+		if (attached) {
+			CompensableManager compensableManager = this.beanFactory.getCompensableManager();
+			compensableManager.detachThread();
+		} // end-if (attached)
+	}
+
 	private void checkRemoteResourceDescriptor(RemoteResourceDescriptor descriptor) throws IllegalStateException {
 		RemoteCoordinator transactionCoordinator = (RemoteCoordinator) this.beanFactory.getCompensableNativeParticipant();
 
@@ -798,7 +999,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	public void suspend() throws SystemException {
 	}
 
-	public synchronized void registerCompensable(CompensableInvocation invocation) {
+	public void registerCompensable(CompensableInvocation invocation) {
 		XidFactory transactionXidFactory = this.beanFactory.getTransactionXidFactory();
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
@@ -817,15 +1018,15 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		compensableArchive.setCompensable(invocation);
 
 		this.archiveList.add(compensableArchive);
+		this.archiveSnapshotDirty = true;
 
 		List<CompensableArchive> archiveList = this.xidToArchivesMap.get(transactionXid);
 		if (archiveList == null) {
-			archiveList = new ArrayList<CompensableArchive>();
-			archiveList.add(compensableArchive);
-			this.xidToArchivesMap.put(transactionXid, archiveList);
-		} else {
-			archiveList.add(compensableArchive);
+			List<CompensableArchive> created = new ArrayList<CompensableArchive>();
+			List<CompensableArchive> existed = this.xidToArchivesMap.putIfAbsent(transactionXid, created);
+			archiveList = existed == null ? created : existed;
 		}
+		archiveList.add(compensableArchive);
 
 		TransactionBranch branch = this.xidToBranchMap.get(transactionXid);
 		if (branch != null) {
@@ -856,7 +1057,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	public void registerTransactionResourceListener(TransactionResourceListener listener) {
 	}
 
-	public synchronized void onEnlistResource(Xid xid, XAResource xares) {
+	public void onEnlistResource(Xid xid, XAResource xares) {
 		XAResourceDescriptor descriptor = null;
 		if (XAResourceArchive.class.isInstance(xares)) {
 			descriptor = ((XAResourceArchive) xares).getDescriptor();
@@ -1017,12 +1218,12 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public synchronized void recover() throws SystemException {
-		if (this.transactionStatus == Status.STATUS_PREPARED //
-				|| this.transactionStatus == Status.STATUS_COMMITTING) {
+		if (this.transactionStatus.get() == Status.STATUS_PREPARED //
+				|| this.transactionStatus.get() == Status.STATUS_COMMITTING) {
 			this.recoverNativeResource(true);
 			this.recoverRemoteResource(true);
-		} else if (this.transactionStatus == Status.STATUS_PREPARING //
-				|| this.transactionStatus == Status.STATUS_ROLLING_BACK) {
+		} else if (this.transactionStatus.get() == Status.STATUS_PREPARING //
+				|| this.transactionStatus.get() == Status.STATUS_ROLLING_BACK) {
 			this.recoverNativeResource(false);
 			this.recoverRemoteResource(false);
 		}
@@ -1186,6 +1387,8 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 
 			if (current.isCompleted()) /* current.isHeuristic() */ {
 				continue; // ignore
+			} else if (current.isReadonly()) {
+				continue; // ignore
 			}
 
 			XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
@@ -1293,6 +1496,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	 * only for recovery.
 	 */
 	public List<CompensableArchive> getCompensableArchiveList() {
+		this.archiveSnapshotDirty = true; // the list may be modified by the caller
 		return this.archiveList;
 	}
 
@@ -1307,6 +1511,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	 * only for recovery.
 	 */
 	public List<XAResourceArchive> getParticipantArchiveList() {
+		this.archiveSnapshotDirty = true; // the list may be modified by the caller
 		return this.resourceList;
 	}
 
@@ -1314,21 +1519,20 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		return this.transactionContext.isRollbackOnly();
 	}
 
-	private synchronized void setTransactionRollbackOnlyQuietly() {
+	private void setTransactionRollbackOnlyQuietly() {
 		Transaction transactionalExtra = this.getTransaction();
 		if (transactionalExtra != null) {
 			transactionalExtra.setRollbackOnlyQuietly();
 		}
 	}
 
-	public synchronized void setRollbackOnly() throws IllegalStateException, SystemException {
+	public void setRollbackOnly() throws IllegalStateException, SystemException {
 		if (this.transactionContext.isCompensating()) {
 			this.setTransactionRollbackOnlyQuietly();
-		} else if (this.transactionStatus == Status.STATUS_ACTIVE) {
-			this.transactionStatus = Status.STATUS_MARKED_ROLLBACK;
+		} else if (this.transactionStatus.compareAndSet(Status.STATUS_ACTIVE, Status.STATUS_MARKED_ROLLBACK)) {
 			this.setTransactionRollbackOnlyQuietly();
 			this.transactionContext.setRollbackOnly(true);
-		} else if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+		} else if (this.transactionStatus.get() == Status.STATUS_MARKED_ROLLBACK) {
 			this.setTransactionRollbackOnlyQuietly();
 			this.transactionContext.setRollbackOnly(true);
 		} else {
@@ -1336,7 +1540,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		}
 	}
 
-	public synchronized void setRollbackOnlyQuietly() {
+	public void setRollbackOnlyQuietly() {
 		try {
 			this.setRollbackOnly();
 		} catch (Exception ex) {
@@ -1359,15 +1563,15 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public int getStatus() throws SystemException {
-		return this.transactionStatus;
+		return this.transactionStatus.get();
 	}
 
 	public int getTransactionStatus() {
-		return this.transactionStatus;
+		return this.transactionStatus.get();
 	}
 
 	public void setTransactionStatus(int status) {
-		this.transactionStatus = status;
+		this.transactionStatus.set(status);
 	}
 
 	public boolean isTiming() {
@@ -1395,7 +1599,11 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public void setVariable(String key, Serializable variable) {
-		this.variables.put(key, variable);
+		synchronized (this.variablesLock) {
+			Map<String, Serializable> variables = new HashMap<String, Serializable>(this.variables);
+			variables.put(key, variable);
+			this.variables = variables;
+		} // end-synchronized (this.variablesLock)
 	}
 
 	public TransactionExtra getTransactionalExtra() {
@@ -1438,6 +1646,85 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		this.variables = variables;
 	}
 
+	private class ForkedTask<V> implements Runnable, Callable<V> {
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final Runnable runnable;
+		private final Callable<V> callable;
+		private volatile boolean reserved;
+
+		public ForkedTask(Runnable runnable, Callable<V> callable) {
+			this.runnable = runnable;
+			this.callable = callable;
+		}
+
+		public void run() {
+			try {
+				this.call();
+			} catch (RuntimeException rex) {
+				throw rex;
+			} catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		public V call() throws Exception {
+			if (this.started.compareAndSet(false, true) == false) {
+				throw new IllegalStateException("The forked task can only be run once!");
+			}
+
+			if (this.reserved == false) {
+				beginForkedTask(); // a task which is never run is not counted
+			} // end-if (this.reserved == false)
+
+			try {
+				boolean attached = attachForkedThread();
+				try {
+					if (this.callable == null) {
+						this.runnable.run();
+						return null;
+					}
+					return this.callable.call();
+				} finally {
+					detachForkedThread(attached);
+				}
+			} finally {
+				endForkedTask(); // join back
+			}
+		}
+
+		public void release() {
+			if (this.reserved && this.started.compareAndSet(false, true)) {
+				endForkedTask();
+			} // end-if (this.reserved && this.started.compareAndSet(false, true))
+		}
+	}
+
+	private static class ArchiveSnapshot {
+		public final List<XAResourceArchive> resources;
+		public final List<CompensableArchive> compensables;
+
+		public ArchiveSnapshot(List<XAResourceArchive> resources, List<CompensableArchive> compensables) {
+			this.resources = Collections.unmodifiableList(new ArrayList<XAResourceArchive>(resources));
+			this.compensables = Collections.unmodifiableList(new ArrayList<CompensableArchive>(compensables));
+		}
+	}
+
+	private static class TransactionArchiveView extends TransactionArchive {
+		private final ArchiveSnapshot snapshot;
+
+		public TransactionArchiveView(ArchiveSnapshot snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		public List<XAResourceArchive> getRemoteResources() {
+			return this.snapshot.resources;
+		}
+
+		public List<CompensableArchive> getCompensableResourceList() {
+			return this.snapshot.compensables;
+		}
+	}
+
 	private static class TransactionBranch {
 		public TransactionXid branchXid;
 		public String resourceKey;
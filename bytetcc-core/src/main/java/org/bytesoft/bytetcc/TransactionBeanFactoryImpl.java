@@ -17,6 +17,7 @@ package org.bytesoft.bytetcc;
 
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
+import org.bytesoft.bytetcc.supports.CompensableTimer;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableContext;
@@ -57,6 +58,7 @@ public final class TransactionBeanFactoryImpl implements CompensableBeanFactory
 	private CompensableSynchronization compensableSynchronization;
 	private TransactionLock compensableLock;
 	private CompensableRolledbackMarker compensableRolledbackMarker;
+	private CompensableTimer compensableTimer;
 
 	private TransactionBeanFactoryImpl() {
 		if (instance != null) {
@@ -228,4 +230,12 @@ public final class TransactionBeanFactoryImpl implements CompensableBeanFactory
 		this.compensableRolledbackMarker = compensableRolledbackMarker;
 	}
 
+	public CompensableTimer getCompensableTimer() {
+		return compensableTimer;
+	}
+
+	public void setCompensableTimer(CompensableTimer compensableTimer) {
+		this.compensableTimer = compensableTimer;
+	}
+
 }
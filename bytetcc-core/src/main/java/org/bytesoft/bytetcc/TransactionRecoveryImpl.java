@@ -15,10 +15,21 @@
  */
 package org.bytesoft.bytetcc;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.sql.DataSource;
 import javax.transaction.Status;
 import javax.transaction.SystemException;
 import javax.transaction.xa.XAException;
@@ -61,6 +72,8 @@ public class TransactionRecoveryImpl
 	static final Logger logger = LoggerFactory.getLogger(TransactionRecoveryImpl.class);
 
 	static final long SECOND_MILLIS = 1000L;
+	static final int SIZE_OF_RESOURCE_XID_BATCH = 100;
+	static final int SIZE_OF_FENCE_LOCKS = 64;
 
 	@javax.inject.Inject
 	protected CompensableBeanFactory beanFactory;
@@ -68,6 +81,23 @@ public class TransactionRecoveryImpl
 	protected transient boolean statefully;
 
 	protected final Map<TransactionXid, Transaction> recovered = new HashMap<TransactionXid, Transaction>();
+	/* transactions read from log whose status has not been recovered yet. */
+	protected final Map<TransactionXid, CompensableTransactionImpl> fenced = new ConcurrentHashMap<TransactionXid, CompensableTransactionImpl>();
+	/* new transactions admitted before the log has been read through. */
+	protected final Set<TransactionXid> admitted = Collections
+			.newSetFromMap(new ConcurrentHashMap<TransactionXid, Boolean>());
+	private final Object[] fenceLocks = new Object[SIZE_OF_FENCE_LOCKS];
+	protected transient volatile boolean compensableLogRecovered = false;
+
+	public TransactionRecoveryImpl() {
+		for (int i = 0; i < this.fenceLocks.length; i++) {
+			this.fenceLocks[i] = new Object();
+		}
+	}
+
+	private Object getFenceLock(TransactionXid xid) {
+		return this.fenceLocks[(xid.hashCode() & Integer.MAX_VALUE) % this.fenceLocks.length];
+	}
 
 	public void onRecovery(Transaction transaction) {
 		org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
@@ -90,9 +120,9 @@ public class TransactionRecoveryImpl
 	}
 
 	protected void fireCompensableStartRecovery() {
-		final TransactionRepository transactionRepository = this.beanFactory.getCompensableRepository();
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
+		final List<CompensableTransactionImpl> transactions = new ArrayList<CompensableTransactionImpl>();
 		compensableLogger.recover(new TransactionRecoveryCallback() {
 			public void recover(TransactionArchive archive) {
 				this.recover((org.bytesoft.compensable.archive.TransactionArchive) archive);
@@ -113,20 +143,87 @@ public class TransactionRecoveryImpl
 						tx.setTransactionalExtra(transaction);
 						transaction.setTransactionalExtra(tx); // TODO different thread
 					}
-				} else {
-					recoverStatusIfNecessary(transaction);
-				} // end-if (transactionContext.isCoordinator())
-
-				transactionRepository.putTransaction(compensableXid, transaction);
-				transactionRepository.putErrorTransaction(compensableXid, transaction);
+				} // end-if (transactionContext.isCompensable() == false)
+
+				synchronized (getFenceLock(compensableXid)) {
+					if (admitted.contains(compensableXid)) {
+						logger.warn("{}| transaction has been started again before it was recovered, ignore the archive in log.",
+								ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()));
+						return;
+					} // end-if (admitted.contains(compensableXid))
+					fenced.put(compensableXid, transaction);
+				} // end-synchronized (getFenceLock(compensableXid))
+				transactions.add(transaction);
 			}
 		});
+		this.compensableLogRecovered = true;
+		this.admitted.clear();
+
+		// resolve the try-phase status of all branches with one scan per resource, instead of one query per branch.
+		Map<TransactionBranchKey, Boolean> triedMap = this.calculateCompensableTried(transactions);
+
+		for (int i = 0; i < transactions.size(); i++) {
+			CompensableTransactionImpl transaction = transactions.get(i);
+			TransactionXid compensableXid = transaction.getTransactionContext().getXid();
+			synchronized (this.getFenceLock(compensableXid)) {
+				if (this.fenced.remove(compensableXid) != null) {
+					this.recoverFencedTransaction(transaction, triedMap);
+				} // end-if (this.fenced.remove(compensableXid) != null)
+			} // end-synchronized (this.getFenceLock(compensableXid))
+		}
 
 		CompensableCoordinator compensableCoordinator = //
 				(CompensableCoordinator) this.beanFactory.getCompensableNativeParticipant();
 		compensableCoordinator.markParticipantReady();
 	}
 
+	/**
+	 * Recovers a transaction fenced by the startup recovery at its first access.
+	 */
+	public boolean recoverIfFenced(TransactionXid xid) {
+		synchronized (this.getFenceLock(xid)) /* a fenced transaction is in the repository once this returns */ {
+			CompensableTransactionImpl transaction = this.fenced.remove(xid);
+			if (transaction == null) {
+				return false;
+			}
+
+			this.recoverFencedTransaction(transaction, new HashMap<TransactionBranchKey, Boolean>());
+			return true;
+		}
+	}
+
+	/**
+	 * Admits a new transaction while the log is still being read, an archive of the same xid read later is ignored.
+	 * Returns false if the transaction has been read from log already.
+	 */
+	public boolean admitIfNotFenced(TransactionXid xid) {
+		synchronized (this.getFenceLock(xid)) {
+			if (this.fenced.containsKey(xid)) {
+				return false;
+			} else if (this.compensableLogRecovered == false) {
+				this.admitted.add(xid);
+			}
+			return true;
+		}
+	}
+
+	public boolean isCompensableLogRecovered() {
+		return this.compensableLogRecovered;
+	}
+
+	private void recoverFencedTransaction(CompensableTransactionImpl transaction,
+			Map<TransactionBranchKey, Boolean> triedMap) {
+		TransactionRepository transactionRepository = this.beanFactory.getCompensableRepository();
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		TransactionXid compensableXid = transactionContext.getXid();
+		if (transactionContext.isCompensable()) {
+			this.recoverStatusIfNecessary(transaction, triedMap);
+		} // end-if (transactionContext.isCompensable())
+
+		transactionRepository.putTransaction(compensableXid, transaction);
+		transactionRepository.putErrorTransaction(compensableXid, transaction);
+	}
+
 	public CompensableTransactionImpl reconstruct(TransactionArchive transactionArchive) {
 		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
 
@@ -176,13 +273,16 @@ public class TransactionRecoveryImpl
 	}
 
 	public void recoverStatusIfNecessary(Transaction transaction) {
+		this.recoverStatusIfNecessary(transaction, new HashMap<TransactionBranchKey, Boolean>());
+	}
+
+	private void recoverStatusIfNecessary(Transaction transaction, Map<TransactionBranchKey, Boolean> triedMap) {
 		org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
 		CompensableTransactionImpl compensable = (CompensableTransactionImpl) transaction;
 		List<CompensableArchive> archiveList = compensable.getCompensableArchiveList();
 
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
-		Map<TransactionBranchKey, Boolean> triedMap = new HashMap<TransactionBranchKey, Boolean>();
 		int triedNumber = 0;
 		int unTriedNumber = 0;
 		int unknownNumber = 0;
@@ -254,6 +354,132 @@ public class TransactionRecoveryImpl
 
 	}
 
+	private Map<TransactionBranchKey, Boolean> calculateCompensableTried(List<CompensableTransactionImpl> transactions) {
+		Map<String, List<TransactionBranchKey>> resourceMap = new HashMap<String, List<TransactionBranchKey>>();
+		for (int i = 0; i < transactions.size(); i++) {
+			CompensableTransactionImpl transaction = transactions.get(i);
+			if (transaction.getTransactionContext().isCompensable() == false) {
+				continue;
+			}
+
+			List<CompensableArchive> archiveList = transaction.getCompensableArchiveList();
+			for (int j = 0; j < archiveList.size(); j++) {
+				CompensableArchive archive = archiveList.get(j);
+				String resource = archive.getTransactionResourceKey();
+				if (archive.isTried() || StringUtils.isBlank(resource) || archive.getTransactionXid() == null) {
+					continue;
+				}
+
+				TransactionBranchKey recordKey = new TransactionBranchKey();
+				recordKey.xid = archive.getTransactionXid();
+				recordKey.resource = resource;
+
+				List<TransactionBranchKey> keyList = resourceMap.get(resource);
+				if (keyList == null) {
+					keyList = new ArrayList<TransactionBranchKey>();
+					resourceMap.put(resource, keyList);
+				}
+				keyList.add(recordKey);
+			}
+		}
+
+		Map<TransactionBranchKey, Boolean> triedMap = new HashMap<TransactionBranchKey, Boolean>();
+		for (Map.Entry<String, List<TransactionBranchKey>> entry : resourceMap.entrySet()) {
+			String resource = entry.getKey();
+			List<TransactionBranchKey> keyList = entry.getValue();
+
+			Set<String> recoverable = this.recoverResourceXids(resource, keyList);
+			if (recoverable == null) {
+				continue; // unresolved branches will be calculated one by one.
+			}
+
+			for (int i = 0; i < keyList.size(); i++) {
+				TransactionBranchKey recordKey = keyList.get(i);
+				triedMap.put(recordKey, recoverable.contains(this.getResourceXidKey(recordKey.xid)));
+			}
+		}
+		return triedMap;
+	}
+
+	/**
+	 * Looks up the branches being recovered in the bytejta table of the resource, by batched IN-lists of their global
+	 * xids, instead of loading the whole table.
+	 */
+	private Set<String> recoverResourceXids(String resourceKey, List<TransactionBranchKey> keyList) {
+		XAResourceDeserializer resourceDeserializer = this.beanFactory.getResourceDeserializer();
+		Connection conn = null;
+		try {
+			LocalXAResourceDescriptor descriptor = //
+					(LocalXAResourceDescriptor) resourceDeserializer.deserialize(resourceKey);
+			RecoveredResource resource = (RecoveredResource) descriptor.getDelegate();
+			DataSource dataSource = resource.getDataSource();
+			if (dataSource == null) {
+				return null;
+			}
+
+			Set<String> xidSet = new HashSet<String>();
+			conn = dataSource.getConnection();
+			for (int from = 0; from < keyList.size(); from += SIZE_OF_RESOURCE_XID_BATCH) {
+				int to = Math.min(from + SIZE_OF_RESOURCE_XID_BATCH, keyList.size());
+				this.recoverResourceXids(conn, keyList.subList(from, to), xidSet);
+			}
+			return xidSet;
+		} catch (SQLException sqlEx) {
+			logger.warn("Error occurred while scanning the branch transactions of resource: {}.", resourceKey, sqlEx);
+		} catch (RuntimeException rex) {
+			logger.warn("Error occurred while scanning the branch transactions of resource: {}.", resourceKey, rex);
+		} finally {
+			this.closeQuietly(conn);
+		}
+		return null;
+	}
+
+	private void recoverResourceXids(Connection conn, List<TransactionBranchKey> keyList, Set<String> xidSet)
+			throws SQLException {
+		Set<String> globalKeys = new LinkedHashSet<String>();
+		for (int i = 0; i < keyList.size(); i++) {
+			globalKeys.add(ByteUtils.byteArrayToString(keyList.get(i).xid.getGlobalTransactionId()));
+		}
+
+		StringBuilder ber = new StringBuilder("select gxid, bxid from bytejta where gxid in (");
+		for (int i = 0; i < globalKeys.size(); i++) {
+			ber.append(i == 0 ? "?" : ", ?");
+		}
+		ber.append(")");
+
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		try {
+			stmt = conn.prepareStatement(ber.toString());
+			int index = 1;
+			for (String globalKey : globalKeys) {
+				stmt.setString(index++, globalKey);
+			}
+			rs = stmt.executeQuery();
+			while (rs.next()) {
+				xidSet.add(rs.getString(1) + ":" + rs.getString(2));
+			}
+		} finally {
+			this.closeQuietly(rs);
+			this.closeQuietly(stmt);
+		}
+	}
+
+	private void closeQuietly(AutoCloseable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (Exception ex) {
+				logger.debug("Error occurred while closing resource {}.", closeable, ex);
+			}
+		}
+	}
+
+	private String getResourceXidKey(Xid xid) {
+		return ByteUtils.byteArrayToString(xid.getGlobalTransactionId()) + ":"
+				+ ByteUtils.byteArrayToString(xid.getBranchQualifier());
+	}
+
 	protected Boolean calculateCompensableTried(TransactionBranchKey recordKey) {
 		if (StringUtils.isBlank(recordKey.resource)) {
 			logger.warn(
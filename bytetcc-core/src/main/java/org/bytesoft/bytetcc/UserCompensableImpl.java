@@ -329,7 +329,12 @@ public class UserCompensableImpl implements UserCompensable, Referenceable, Seri
 		this.transactionManager.setRollbackOnly();
 	}
 
+	/**
+	 * Sets the timeout of the compensable transaction begun by this thread, as well as the timeout of the jta
+	 * transactions.
+	 */
 	public void setTransactionTimeout(int timeout) throws SystemException {
+		this.beanFactory.getCompensableManager().setTransactionTimeout(timeout);
 		this.transactionManager.setTimeoutSeconds(timeout);
 	}
 
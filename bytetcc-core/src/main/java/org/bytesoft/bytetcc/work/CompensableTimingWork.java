@@ -0,0 +1,196 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.resource.spi.work.Work;
+import javax.transaction.Status;
+
+import org.bytesoft.bytetcc.supports.CompensableTimer;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.CompensableTransaction;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel which bounds the try-phase of the compensable transactions by their expired-time.
+ */
+public class CompensableTimingWork implements Work, CompensableTimer, CompensableBeanFactoryAware {
+	static final Logger logger = LoggerFactory.getLogger(CompensableTimingWork.class);
+
+	static final long SECOND_MILLIS = 1000L;
+	static final int WHEEL_SIZE = 512;
+	static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private long stopTimeMillis = -1;
+	private long delayOfStoping = SECOND_MILLIS * 15;
+	private long tickDuration = 100L;
+
+	private final ConcurrentMap<TransactionXid, TimingEntry> timingMap = new ConcurrentHashMap<TransactionXid, TimingEntry>();
+	private final List<Set<TimingEntry>> wheel = new ArrayList<Set<TimingEntry>>(WHEEL_SIZE);
+
+	@javax.inject.Inject
+	private CompensableBeanFactory beanFactory;
+
+	public CompensableTimingWork() {
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			this.wheel.add(Collections.newSetFromMap(new ConcurrentHashMap<TimingEntry, Boolean>()));
+		}
+	}
+
+	public void timingTransaction(CompensableTransaction transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		long expiredTime = transactionContext.getExpiredTime();
+		if (expiredTime <= 0) {
+			return;
+		}
+
+		// an overdue deadline is placed in the current tick, which has not been processed yet
+		long currentTick = System.currentTimeMillis() / this.tickDuration;
+		long expiredTick = Math.max(expiredTime / this.tickDuration, currentTick);
+
+		TransactionXid xid = transactionContext.getXid();
+		TimingEntry entry = new TimingEntry(transaction, expiredTime, expiredTick);
+		if (this.timingMap.putIfAbsent(xid, entry) == null) {
+			this.getBucket(expiredTick).add(entry);
+		} // end-if (this.timingMap.putIfAbsent(xid, entry) == null)
+	}
+
+	public void stopTiming(CompensableTransaction transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		TimingEntry entry = this.timingMap.remove(transactionContext.getXid());
+		if (entry != null) {
+			this.getBucket(entry.expiredTick).remove(entry);
+		} // end-if (entry != null)
+	}
+
+	private Set<TimingEntry> getBucket(long tick) {
+		return this.wheel.get((int) (tick & WHEEL_MASK));
+	}
+
+	public void run() {
+		long lastTick = System.currentTimeMillis() / this.tickDuration;
+		while (this.currentActive()) {
+			long currentTick = System.currentTimeMillis() / this.tickDuration;
+			long fromTick = Math.max(lastTick, currentTick - WHEEL_MASK);
+			for (long tick = fromTick; tick < currentTick; tick++) {
+				this.processBucket(this.getBucket(tick));
+			} // the bucket of current tick is still filling, it will be processed once the tick has passed
+			lastTick = currentTick;
+
+			this.waitForMillis(this.tickDuration);
+		} // end-while (this.currentActive())
+	}
+
+	private void processBucket(Set<TimingEntry> bucket) {
+		long current = System.currentTimeMillis();
+		for (Iterator<TimingEntry> itr = bucket.iterator(); itr.hasNext();) {
+			TimingEntry entry = itr.next();
+			if (entry.expiredTime > current) {
+				continue; // expires in a later revolution
+			}
+
+			itr.remove();
+			TransactionContext transactionContext = entry.transaction.getTransactionContext();
+			if (this.timingMap.remove(transactionContext.getXid(), entry)) {
+				this.fireTransactionTimeout(entry.transaction);
+			} // end-if (this.timingMap.remove(transactionContext.getXid(), entry))
+		}
+	}
+
+	private void fireTransactionTimeout(CompensableTransaction transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		TransactionXid xid = transactionContext.getXid();
+		if (transactionContext.isCompensating()) {
+			return; // the try-phase has been completed
+		} else if (transaction.getTransactionStatus() != Status.STATUS_ACTIVE) {
+			return;
+		}
+
+		try {
+			transaction.setRollbackOnlyQuietly();
+			logger.warn("{}| compensable transaction timed out, mark as rollback-only.",
+					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+		} catch (RuntimeException rex) {
+			logger.error("{}| error occurred while timing out compensable transaction.",
+					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), rex);
+		}
+	}
+
+	private void waitForMillis(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (Exception ignore) {
+			logger.debug(ignore.getMessage(), ignore);
+		}
+	}
+
+	public void release() {
+		this.stopTimeMillis = System.currentTimeMillis() + this.delayOfStoping;
+	}
+
+	protected boolean currentActive() {
+		return this.stopTimeMillis <= 0 || System.currentTimeMillis() < this.stopTimeMillis;
+	}
+
+	static final class TimingEntry {
+		private final CompensableTransaction transaction;
+		private final long expiredTime;
+		private final long expiredTick;
+
+		public TimingEntry(CompensableTransaction transaction, long expiredTime, long expiredTick) {
+			this.transaction = transaction;
+			this.expiredTime = expiredTime;
+			this.expiredTick = expiredTick;
+		}
+	}
+
+	public long getDelayOfStoping() {
+		return delayOfStoping;
+	}
+
+	public void setDelayOfStoping(long delayOfStoping) {
+		this.delayOfStoping = delayOfStoping;
+	}
+
+	public long getTickDuration() {
+		return tickDuration;
+	}
+
+	public void setTickDuration(long tickDuration) {
+		this.tickDuration = tickDuration;
+	}
+
+	public CompensableBeanFactory getBeanFactory() {
+		return this.beanFactory;
+	}
+
+	public void setBeanFactory(CompensableBeanFactory tbf) {
+		this.beanFactory = tbf;
+	}
+
+}
@@ -67,6 +67,7 @@ public class CleanupFile implements CompensableEndpointAware, CompensableBeanFac
 
 	private final List<CleanupRecord> recordList = new ArrayList<CleanupRecord>();
 	private final Map<String, Set<CleanupRecord>> recordMap = new HashMap<String, Set<CleanupRecord>>();
+	private volatile boolean dirty; // holds records which have not been cleaned up and compressed yet
 
 	public CleanupFile(String resourceName) {
 		this.resourceName = resourceName;
@@ -255,6 +256,7 @@ public class CleanupFile implements CompensableEndpointAware, CompensableBeanFac
 			this.recordList.add(record);
 			if (record.isEnabled()) {
 				this.registerRecord(record);
+				this.dirty = true;
 			} // end-if (record.isEnabled())
 		}
 	}
@@ -384,6 +386,7 @@ public class CleanupFile implements CompensableEndpointAware, CompensableBeanFac
 		this.registerRecord(buffer, recordFlag, recordIndex);
 
 		this.updateEndIndex(buffer.capacity() + this.endIndex); // update endIndex
+		this.dirty = true;
 	}
 
 	private void registerRecord(ByteBuffer buffer, int recordFlag, int position) throws RuntimeException {
@@ -523,6 +526,14 @@ public class CleanupFile implements CompensableEndpointAware, CompensableBeanFac
 		return recordMap;
 	}
 
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public void setDirty(boolean dirty) {
+		this.dirty = dirty;
+	}
+
 	public CompensableBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work.vfs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.xa.Xid;
+
+/**
+ * Multi-producer/single-consumer ring buffer of forget requests, the slots are allocated once and reused.
+ */
+public class CleanupRingBuffer {
+
+	private final Slot[] slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+
+	public CleanupRingBuffer(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("The capacity must be a power of 2!");
+		}
+
+		this.mask = capacity - 1;
+		this.slots = new Slot[capacity];
+		for (int i = 0; i < capacity; i++) {
+			this.slots[i] = new Slot(i - capacity);
+		}
+	}
+
+	/**
+	 * Returns false without blocking if the ring is full, the caller is expected to write the record by itself.
+	 */
+	public boolean publish(Xid xid, String resourceId) {
+		long sequence;
+		do {
+			sequence = this.tail.get();
+			if (sequence - this.head >= this.slots.length) {
+				return false;
+			}
+		} while (this.tail.compareAndSet(sequence, sequence + 1) == false);
+
+		Slot slot = this.slots[(int) (sequence & this.mask)];
+		slot.xid = xid;
+		slot.resourceId = resourceId;
+		slot.sequence = sequence; // publish
+		return true;
+	}
+
+	/**
+	 * Drains at most maxRecords published records, only called by the writer thread. A record is released only after
+	 * it has been handled, if the handler fails it stays at the head of the ring and is handled again by the next drain.
+	 */
+	public int drain(Handler handler, int maxRecords) {
+		long current = this.head;
+		int count = 0;
+		for (; count < maxRecords; count++, current++) {
+			Slot slot = this.slots[(int) (current & this.mask)];
+			if (slot.sequence != current) {
+				break; // not published yet
+			}
+
+			handler.handle(slot.xid, slot.resourceId);
+
+			slot.xid = null;
+			slot.resourceId = null;
+			this.head = current + 1;
+		}
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return this.tail.get() == this.head;
+	}
+
+	public interface Handler {
+		public void handle(Xid xid, String resourceId);
+	}
+
+	static final class Slot {
+		volatile long sequence;
+		Xid xid;
+		String resourceId;
+
+		Slot(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+
+}
@@ -17,11 +17,20 @@ package org.bytesoft.bytetcc.work.vfs;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -47,10 +56,33 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 
 	static final long SECOND_MILLIS = 1000L;
 	static final int MAX_HANDLE_RECORDS = 200;
+	static final int MAX_DRAIN_RECORDS = 4096;
+	static final int DEFAULT_BATCH_SIZE = 2000;
+	static final long MIN_SWAP_MILLIS = SECOND_MILLIS;
+	static final long MAX_SWAP_MILLIS = SECOND_MILLIS * 120;
+	static final long MAX_IDLE_MILLIS = 500L;
 
 	@javax.inject.Inject
 	private CompensableBeanFactory beanFactory;
 	private final Lock lock = new ReentrantLock();
+	private final CleanupRingBuffer ringBuffer = new CleanupRingBuffer(1 << 14);
+	private final CleanupRingBuffer.Handler ringHandler = new CleanupRingBuffer.Handler() {
+		public void handle(Xid xid, String resourceId) {
+			master.forget(xid, resourceId);
+		}
+	};
+
+	private final AtomicLong published = new AtomicLong();
+	private double arrivalRate; // records per second
+
+	private long swapIntervalMillis = SECOND_MILLIS * 30;
+	private int swapThreshold = 10000;
+	private int cleanupThreads = 4;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private Map<String, Integer> batchSizes = new HashMap<String, Integer>();
+	private ExecutorService cleanupExecutor;
+	/* forget records are buffered in memory and written in batches, the buffered ones are lost on a crash. */
+	private boolean asynchronous;
 
 	private final Lock startLock = new ReentrantLock();
 	private final Condition startCond = this.startLock.newCondition();
@@ -128,23 +160,111 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 
 		this.markStartupDone();
 
-		long swapMillis = System.currentTimeMillis() + 1000L * 30;
+		this.initializeCleanupExecutor();
+
+		long swapMillis = System.currentTimeMillis();
+		long swappedCount = this.published.get();
+		long sampleMillis = swapMillis;
+		long sampleCount = swappedCount;
+		long idleMillis = 0;
 
 		while (this.released == false) {
-			if (System.currentTimeMillis() < swapMillis) {
-				this.waitingFor(100);
-			} else {
+			int flushed = this.flushForgetRecords();
+
+			long current = System.currentTimeMillis();
+			long publishedCount = this.published.get();
+			if (current - sampleMillis >= SECOND_MILLIS) {
+				double rate = (publishedCount - sampleCount) * 1000D / (current - sampleMillis);
+				this.arrivalRate = this.arrivalRate * 0.7D + rate * 0.3D;
+				sampleMillis = current;
+				sampleCount = publishedCount;
+			} // end-if (current - sampleMillis >= SECOND_MILLIS)
+
+			long backlog = publishedCount - swappedCount;
+			if (current - swapMillis < this.calculateSwapInterval(backlog)) {
+				idleMillis = flushed > 0 ? 0 : Math.min(idleMillis + 100, MAX_IDLE_MILLIS);
+				if (idleMillis > 0) {
+					this.waitingFor(idleMillis);
+				} // end-if (idleMillis > 0)
+				continue;
+			}
+
+			swapMillis = current;
+			// a slaver failed to be cleaned up is retried in place, unless the master has to be swapped out anyway
+			boolean retrying = this.slaver.isDirty() && backlog < this.swapThreshold;
+			if (retrying == false) {
+				if (this.master.isDirty() == false) {
+					continue; // nothing to cleanup
+				}
+
+				swappedCount = publishedCount;
 				this.switchMasterAndSlaver();
-				swapMillis = System.currentTimeMillis() + 1000L * 30;
+			} // end-if (retrying == false)
 
-				this.cleanupSlaver();
-				this.compressSlaver();
-			}
+			this.cleanupSlaver();
+			this.compressSlaver();
 		}
 
+		while (this.flushForgetRecords() > 0) {
+			// flush all the pending records before closing the files
+		}
+		this.destroyCleanupExecutor();
 		this.destroy();
 	}
 
+	/**
+	 * The swap interval shrinks as the backlog approaches the threshold at the observed arrival rate, and grows to
+	 * the maximum while there is nothing to cleanup.
+	 */
+	private long calculateSwapInterval(long backlog) {
+		if (backlog >= this.swapThreshold) {
+			return 0;
+		} else if (backlog == 0) {
+			return this.master.isDirty() || this.slaver.isDirty() ? this.swapIntervalMillis : MAX_SWAP_MILLIS;
+		}
+
+		double rate = this.arrivalRate;
+		long fillMillis = rate < 1D ? this.swapIntervalMillis : (long) ((this.swapThreshold - backlog) * 1000D / rate);
+		return Math.max(MIN_SWAP_MILLIS, Math.min(this.swapIntervalMillis, fillMillis));
+	}
+
+	private void initializeCleanupExecutor() {
+		if (this.cleanupThreads <= 1) {
+			return;
+		}
+
+		final AtomicInteger counter = new AtomicInteger();
+		this.cleanupExecutor = Executors.newFixedThreadPool(this.cleanupThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "bytetcc-cleanup-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private void destroyCleanupExecutor() {
+		if (this.cleanupExecutor != null) {
+			this.cleanupExecutor.shutdown();
+		}
+	}
+
+	private int flushForgetRecords() {
+		if (this.ringBuffer.isEmpty()) {
+			return 0;
+		}
+
+		try {
+			this.lock.lock();
+			return this.ringBuffer.drain(this.ringHandler, MAX_DRAIN_RECORDS);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while writing forget records, they will be retried.", rex);
+			return 0;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
 	protected void waitingFor(long millis) {
 		try {
 			Thread.sleep(millis);
@@ -162,24 +282,55 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 		Set<Map.Entry<String, Set<CleanupRecord>>> entrySet = recordMap.entrySet();
 		Iterator<Map.Entry<String, Set<CleanupRecord>>> itr = entrySet.iterator();
 
+		boolean dirty = false;
+		if (this.cleanupExecutor == null || recordMap.size() <= 1) {
+			while (itr.hasNext()) {
+				Map.Entry<String, Set<CleanupRecord>> entry = itr.next();
+				String resourceId = entry.getKey();
+				Set<CleanupRecord> records = entry.getValue();
+
+				dirty = this.cleanupByResource(resourceId, records) == false || dirty;
+			}
+			this.slaver.setDirty(dirty);
+			return;
+		} // end-if (this.cleanupExecutor == null || recordMap.size() <= 1)
+
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
 		while (itr.hasNext()) {
 			Map.Entry<String, Set<CleanupRecord>> entry = itr.next();
-			String resourceId = entry.getKey();
-			Set<CleanupRecord> records = entry.getValue();
-
-			this.cleanupByResource(resourceId, records);
+			final String resourceId = entry.getKey();
+			final Set<CleanupRecord> records = entry.getValue();
+
+			futures.add(this.cleanupExecutor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					return cleanupByResource(resourceId, records);
+				}
+			}));
 		}
 
+		for (int i = 0; i < futures.size(); i++) {
+			Future<Boolean> future = futures.get(i);
+			try {
+				dirty = future.get() == false || dirty;
+			} catch (InterruptedException ex) {
+				logger.error(ex.getMessage());
+				dirty = true;
+			} catch (ExecutionException ex) {
+				logger.error("forget-transaction: error occurred while forgetting branches.", ex.getCause());
+				dirty = true;
+			}
+		} // end-for (int i = 0; i < futures.size(); i++)
+		this.slaver.setDirty(dirty);
 	}
 
-	private void cleanupByResource(String resourceId, Set<CleanupRecord> records) {
+	private boolean cleanupByResource(String resourceId, Set<CleanupRecord> records) {
 		int remain = records.size();
 		Iterator<CleanupRecord> recordItr = records.iterator();
 		while (recordItr.hasNext()) {
 			List<CleanupRecord> recordList = new ArrayList<CleanupRecord>();
 			List<Xid> xidList = new ArrayList<Xid>();
 
-			int defaultBatchSize = 2000;
+			int defaultBatchSize = this.getBatchSize(resourceId);
 			int maxBatchSize = defaultBatchSize * 5 / 4;
 			int batchSize = remain > defaultBatchSize && remain < maxBatchSize ? remain : defaultBatchSize;
 			for (int i = 0; i < batchSize && recordItr.hasNext(); i++, remain--) {
@@ -193,7 +344,7 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 			} catch (RuntimeException rex) {
 				logger.error("forget-transaction: error occurred while forgetting branch: resource= {}, xids= {}", resourceId,
 						xidList, rex);
-				return; // continue;
+				return false; // continue;
 			}
 
 			for (int i = 0; i < recordList.size(); i++) {
@@ -203,11 +354,22 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 			}
 
 		} // end-while (recordItr.hasNext())
+
+		return true;
+	}
+
+	private int getBatchSize(String resourceId) {
+		Integer resourceBatchSize = this.batchSizes.get(resourceId);
+		return resourceBatchSize == null || resourceBatchSize <= 0 ? this.batchSize : resourceBatchSize;
 	}
 
 	public void switchMasterAndSlaver() {
 		try {
 			this.lock.lock();
+			while (this.flushForgetRecords() > 0) {
+				// the pending records belong to the current master
+			}
+
 			this.slaver.markPrepare();
 			this.master.markSlaver();
 			this.slaver.markMaster();
@@ -248,15 +410,27 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 	}
 
 	public void forget(Xid xid, String resourceId) throws RuntimeException {
-		this.waitForStartup();
+		if (resourceId.getBytes().length > CleanupFile.CONSTANTS_RES_ID_MAX_SIZE) {
+			throw new IllegalStateException("The resource name is too long!");
+		}
+
+		this.waitForStartup(); // the master file may only be written once the startup recovery has completed
+
+		if (this.asynchronous == false) {
+			this.forgetSynchronously(xid, resourceId);
+		} else if (this.ringBuffer.publish(xid, resourceId) == false) {
+			this.forgetSynchronously(xid, resourceId); // the ring is full while the cleanup thread is busy
+		} // otherwise written by the cleanup thread in batches
+		this.published.incrementAndGet();
+	}
 
+	private void forgetSynchronously(Xid xid, String resourceId) throws RuntimeException {
 		try {
 			this.lock.lock();
 			this.master.forget(xid, resourceId);
 		} finally {
 			this.lock.unlock();
 		}
-
 	}
 
 	public void markStartupDone() {
@@ -306,6 +480,54 @@ public class CleanupWork implements Work, LocalResourceCleaner, CompensableEndpo
 		this.beanFactory = tbf;
 	}
 
+	public long getSwapIntervalMillis() {
+		return swapIntervalMillis;
+	}
+
+	public void setSwapIntervalMillis(long swapIntervalMillis) {
+		this.swapIntervalMillis = swapIntervalMillis;
+	}
+
+	public int getSwapThreshold() {
+		return swapThreshold;
+	}
+
+	public void setSwapThreshold(int swapThreshold) {
+		this.swapThreshold = swapThreshold;
+	}
+
+	public int getCleanupThreads() {
+		return cleanupThreads;
+	}
+
+	public void setCleanupThreads(int cleanupThreads) {
+		this.cleanupThreads = cleanupThreads;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
+	public Map<String, Integer> getBatchSizes() {
+		return batchSizes;
+	}
+
+	public void setBatchSizes(Map<String, Integer> batchSizes) {
+		this.batchSizes = batchSizes == null ? new HashMap<String, Integer>() : batchSizes;
+	}
+
 	public File getDirectory() {
 		return directory;
 	}
@@ -17,6 +17,7 @@ package org.bytesoft.compensable;
 
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
+import org.bytesoft.bytetcc.supports.CompensableTimer;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
 import org.bytesoft.compensable.logging.CompensableLogger;
 import org.bytesoft.transaction.TransactionLock;
@@ -71,4 +72,6 @@ public interface CompensableBeanFactory {
 
 	public CompensableRolledbackMarker getCompensableRolledbackMarker();
 
+	public CompensableTimer getCompensableTimer();
+
 }
@@ -15,6 +15,8 @@
  */
 package org.bytesoft.compensable;
 
+import javax.transaction.xa.XAResource;
+
 import org.bytesoft.compensable.archive.CompensableArchive;
 import org.bytesoft.compensable.archive.TransactionArchive;
 import org.bytesoft.transaction.Transaction;
@@ -36,4 +38,8 @@ public interface CompensableTransaction
 
 	public void completeCompensable(CompensableInvocation invocation);
 
+	public void onParticipantVote(XAResource xaRes, boolean readonly);
+
+	public boolean joinForkedTasks();
+
 }
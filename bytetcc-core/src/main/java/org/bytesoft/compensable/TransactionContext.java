@@ -25,6 +25,8 @@ public class TransactionContext extends org.bytesoft.transaction.TransactionCont
 
 	private boolean compensable;
 	private boolean statefully;
+	/* participant's vote at the end of its try-phase branch, only carried by response. */
+	private boolean participantReadonly;
 
 	public boolean compatibleLoggingLRO() {
 		return true;
@@ -64,6 +66,14 @@ public class TransactionContext extends org.bytesoft.transaction.TransactionCont
 		this.compensable = compensable;
 	}
 
+	public boolean isParticipantReadonly() {
+		return participantReadonly;
+	}
+
+	public void setParticipantReadonly(boolean participantReadonly) {
+		this.participantReadonly = participantReadonly;
+	}
+
 	public int getPropagationLevel() {
 		return propagationLevel;
 	}
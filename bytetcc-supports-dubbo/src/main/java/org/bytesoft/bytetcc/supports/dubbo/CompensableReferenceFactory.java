@@ -0,0 +1,196 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.dubbo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.transaction.remote.RemoteAddr;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.remote.RemoteNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.config.ApplicationConfig;
+import com.alibaba.dubbo.config.ProtocolConfig;
+import com.alibaba.dubbo.config.ReferenceConfig;
+import com.alibaba.dubbo.config.RegistryConfig;
+import com.alibaba.dubbo.rpc.RpcException;
+
+public final class CompensableReferenceFactory {
+	static final Logger logger = LoggerFactory.getLogger(CompensableReferenceFactory.class);
+	private static final CompensableReferenceFactory instance = new CompensableReferenceFactory();
+
+	private final ConcurrentMap<String, FutureTask<RemoteCoordinator>> creations = //
+			new ConcurrentHashMap<String, FutureTask<RemoteCoordinator>>();
+
+	private CompensableReferenceFactory() {
+		if (instance != null) {
+			throw new IllegalStateException();
+		}
+	}
+
+	public static CompensableReferenceFactory getInstance() {
+		return instance;
+	}
+
+	public RemoteCoordinator getPhysicalInstance(final RemoteAddr remoteAddr, final boolean statefully) throws RpcException {
+		final RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		RemoteCoordinator physicalInst = participantRegistry.getPhysicalInstance(remoteAddr);
+		if (physicalInst != null) {
+			return physicalInst;
+		} // end-if (physicalInst != null)
+
+		String key = String.format("%s:%s", remoteAddr.getServerHost(), remoteAddr.getServerPort());
+		return this.getOrCreateReference(key, new Callable<RemoteCoordinator>() {
+			public RemoteCoordinator call() throws Exception {
+				RemoteCoordinator participant = participantRegistry.getPhysicalInstance(remoteAddr);
+				if (participant == null) {
+					participant = createReference(remoteAddr, statefully);
+					participantRegistry.putPhysicalInstance(remoteAddr, participant);
+				} // end-if (participant == null)
+				return participant;
+			}
+		});
+	}
+
+	public RemoteCoordinator getParticipant(String system, final boolean statefully) throws RpcException {
+		final RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		final String application = StringUtils.trimToEmpty(system);
+		RemoteCoordinator remoteParticipant = participantRegistry.getParticipant(application);
+		if (remoteParticipant != null) {
+			return remoteParticipant;
+		} // end-if (remoteParticipant != null)
+
+		return this.getOrCreateReference(application, new Callable<RemoteCoordinator>() {
+			public RemoteCoordinator call() throws Exception {
+				RemoteCoordinator participant = participantRegistry.getParticipant(application);
+				if (participant == null) {
+					participant = createReference(application, statefully);
+					participantRegistry.putParticipant(application, participant);
+				} // end-if (participant == null)
+				return participant;
+			}
+		});
+	}
+
+	public RemoteNode getRemoteNode(RemoteAddr remoteAddr, boolean statefully) throws RpcException {
+		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		RemoteNode remoteNode = participantRegistry.getRemoteNode(remoteAddr);
+		if (remoteNode != null) {
+			return remoteNode;
+		} // end-if (remoteNode != null)
+
+		RemoteCoordinator physicalInst = this.getPhysicalInstance(remoteAddr, statefully);
+		String identifier = physicalInst.getIdentifier();
+		remoteNode = CommonUtils.getRemoteNode(identifier);
+		if (remoteNode != null) {
+			participantRegistry.putRemoteNode(remoteAddr, remoteNode);
+		} // end-if (remoteNode != null)
+		return remoteNode;
+	}
+
+	private RemoteCoordinator getOrCreateReference(String key, Callable<RemoteCoordinator> callable) throws RpcException {
+		FutureTask<RemoteCoordinator> created = new FutureTask<RemoteCoordinator>(callable);
+		FutureTask<RemoteCoordinator> existed = this.creations.putIfAbsent(key, created);
+		FutureTask<RemoteCoordinator> task = existed == null ? created : existed;
+		if (existed == null) {
+			try {
+				created.run();
+			} finally {
+				this.creations.remove(key, created);
+			}
+		} // end-if (existed == null)
+
+		try {
+			return task.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RpcException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (RpcException.class.isInstance(cause)) {
+				throw (RpcException) cause;
+			}
+			throw new RpcException(cause);
+		}
+	}
+
+	private RemoteCoordinator createReference(RemoteAddr remoteAddr, boolean statefully) throws RpcException {
+		ReferenceConfig<RemoteCoordinator> referenceConfig = this.createReferenceConfig();
+		referenceConfig.setGroup(statefully ? "x-bytetcc" : "z-bytetcc");
+		referenceConfig.setUrl(String.format("%s:%s", remoteAddr.getServerHost(), remoteAddr.getServerPort()));
+
+		RemoteCoordinator reference = referenceConfig.get();
+		if (reference == null) {
+			throw new RpcException("Cannot get the application name of the remote application.");
+		} // end-if (reference == null)
+
+		return reference;
+	}
+
+	private RemoteCoordinator createReference(String application, boolean statefully) throws RpcException {
+		ReferenceConfig<RemoteCoordinator> referenceConfig = this.createReferenceConfig();
+		if (statefully) {
+			referenceConfig.setGroup(String.format("x-%s", application));
+			referenceConfig.setLoadbalance("bytetcc");
+		} else {
+			referenceConfig.setGroup(String.format("z-%s", application));
+		}
+
+		RemoteCoordinator reference = referenceConfig.get();
+		if (reference == null) {
+			throw new RpcException("Cannot get the application name of the remote application.");
+		} // end-if (reference == null)
+
+		return reference;
+	}
+
+	private ReferenceConfig<RemoteCoordinator> createReferenceConfig() {
+		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
+		ApplicationConfig applicationConfig = beanRegistry.getBean(ApplicationConfig.class);
+		RegistryConfig registryConfig = beanRegistry.getBean(RegistryConfig.class);
+		ProtocolConfig protocolConfig = beanRegistry.getBean(ProtocolConfig.class);
+
+		ReferenceConfig<RemoteCoordinator> referenceConfig = new ReferenceConfig<RemoteCoordinator>();
+		referenceConfig.setInterface(RemoteCoordinator.class);
+		referenceConfig.setTimeout(6 * 1000);
+		referenceConfig.setCluster("failfast");
+		referenceConfig.setFilter("bytetcc");
+		referenceConfig.setCheck(false);
+		referenceConfig.setRetries(-1);
+		referenceConfig.setScope(Constants.SCOPE_REMOTE);
+
+		referenceConfig.setApplication(applicationConfig);
+		if (registryConfig != null) {
+			referenceConfig.setRegistry(registryConfig);
+		} // end-if (registryConfig != null)
+
+		if (protocolConfig != null) {
+			referenceConfig.setProtocol(protocolConfig.getName());
+		} // end-if (protocolConfig != null)
+
+		return referenceConfig;
+	}
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.dubbo.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
+import org.bytesoft.bytetcc.supports.dubbo.CompensableReferenceFactory;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.aware.CompensableEndpointAware;
+import org.bytesoft.transaction.remote.RemoteAddr;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.remote.RemoteNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.utils.NetUtils;
+import com.alibaba.dubbo.common.utils.UrlUtils;
+import com.alibaba.dubbo.config.ApplicationConfig;
+import com.alibaba.dubbo.config.RegistryConfig;
+import com.alibaba.dubbo.registry.NotifyListener;
+import com.alibaba.dubbo.registry.Registry;
+import com.alibaba.dubbo.registry.RegistryFactory;
+
+public class CompensableReferencePreloader implements SmartInitializingSingleton, DisposableBean, NotifyListener,
+		CompensableEndpointAware, BeanFactoryAware {
+	static final Logger logger = LoggerFactory.getLogger(CompensableReferencePreloader.class);
+
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>());
+
+	private BeanFactory beanFactory;
+	private String endpoint;
+	private boolean statefully;
+
+	private Registry registry;
+	private URL subscribeUrl;
+
+	public void afterSingletonsInstantiated() {
+		RegistryConfig registryConfig = this.getBean(RegistryConfig.class);
+		String address = registryConfig == null ? null : registryConfig.getAddress();
+		if (StringUtils.isBlank(address) || RegistryConfig.NO_AVAILABLE.equalsIgnoreCase(address)) {
+			logger.info("No registry is configured, the remote coordinator references will be created on demand.");
+			return;
+		} // end-if (StringUtils.isBlank(address) || RegistryConfig.NO_AVAILABLE.equalsIgnoreCase(address))
+
+		Map<String, String> defaults = new HashMap<String, String>();
+		defaults.put(Constants.PROTOCOL_KEY,
+				StringUtils.isBlank(registryConfig.getProtocol()) ? "dubbo" : registryConfig.getProtocol());
+		URL registryUrl = UrlUtils.parseURL(address, defaults);
+
+		ApplicationConfig applicationConfig = this.getBean(ApplicationConfig.class);
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put(Constants.INTERFACE_KEY, RemoteCoordinator.class.getName());
+		parameters.put(Constants.GROUP_KEY, this.statefully ? "x-bytetcc" : "z-bytetcc");
+		parameters.put(Constants.CATEGORY_KEY, Constants.PROVIDERS_CATEGORY);
+		parameters.put(Constants.CHECK_KEY, String.valueOf(false));
+		if (applicationConfig != null) {
+			parameters.put(Constants.APPLICATION_KEY, applicationConfig.getName());
+		} // end-if (applicationConfig != null)
+
+		this.subscribeUrl = new URL(Constants.CONSUMER_PROTOCOL, NetUtils.getLocalHost(), 0,
+				RemoteCoordinator.class.getName(), parameters);
+
+		this.executor.allowCoreThreadTimeOut(true);
+		try {
+			RegistryFactory registryFactory = ExtensionLoader.getExtensionLoader(RegistryFactory.class).getAdaptiveExtension();
+			this.registry = registryFactory.getRegistry(registryUrl);
+			this.registry.subscribe(this.subscribeUrl, this);
+		} catch (RuntimeException rex) {
+			logger.warn("Error occurred while subscribing the remote coordinators, they will be created on demand.", rex);
+		}
+	}
+
+	public void notify(List<URL> urls) {
+		RemoteAddr localAddr = StringUtils.isBlank(this.endpoint) ? null : CommonUtils.getRemoteAddr(this.endpoint);
+		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		for (int i = 0; urls != null && i < urls.size(); i++) {
+			URL url = urls.get(i);
+			if (Constants.EMPTY_PROTOCOL.equals(url.getProtocol())) {
+				continue;
+			} // end-if (Constants.EMPTY_PROTOCOL.equals(url.getProtocol()))
+
+			final RemoteAddr remoteAddr = new RemoteAddr();
+			remoteAddr.setServerHost(url.getIp());
+			remoteAddr.setServerPort(url.getPort());
+			if (remoteAddr.equals(localAddr) || participantRegistry.containsRemoteNode(remoteAddr)) {
+				continue;
+			} // end-if (remoteAddr.equals(localAddr) || participantRegistry.containsRemoteNode(remoteAddr))
+
+			this.executor.execute(new Runnable() {
+				public void run() {
+					preloadRemoteCoordinator(remoteAddr);
+				}
+			});
+		}
+	}
+
+	private void preloadRemoteCoordinator(RemoteAddr remoteAddr) {
+		CompensableReferenceFactory referenceFactory = CompensableReferenceFactory.getInstance();
+		try {
+			RemoteNode remoteNode = referenceFactory.getRemoteNode(remoteAddr, this.statefully);
+			if (remoteNode != null && StringUtils.isNotBlank(remoteNode.getServiceKey())) {
+				referenceFactory.getParticipant(remoteNode.getServiceKey(), this.statefully);
+			} // end-if (remoteNode != null && StringUtils.isNotBlank(remoteNode.getServiceKey()))
+		} catch (RuntimeException rex) {
+			logger.warn("Error occurred while preloading the remote coordinator({}).", remoteAddr, rex);
+		}
+	}
+
+	private <T> T getBean(Class<T> requiredType) {
+		try {
+			return this.beanFactory.getBean(requiredType);
+		} catch (NoSuchBeanDefinitionException error) {
+			return null; // ignore
+		}
+	}
+
+	public void destroy() throws Exception {
+		if (this.registry != null) {
+			this.registry.unsubscribe(this.subscribeUrl, this);
+		} // end-if (this.registry != null)
+		this.executor.shutdownNow();
+	}
+
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	public boolean isStatefully() {
+		return statefully;
+	}
+
+	public void setStatefully(boolean statefully) {
+		this.statefully = statefully;
+	}
+
+	public String getEndpoint() {
+		return this.endpoint;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.endpoint = identifier;
+	}
+
+}
@@ -18,10 +18,9 @@ package org.bytesoft.bytetcc.supports.dubbo.serialize;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.bytejta.supports.resource.RemoteResourceDescriptor;
-import org.bytesoft.bytetcc.supports.dubbo.CompensableBeanRegistry;
+import org.bytesoft.bytetcc.supports.dubbo.CompensableReferenceFactory;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
@@ -34,13 +33,6 @@ import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
-import com.alibaba.dubbo.common.Constants;
-import com.alibaba.dubbo.config.ApplicationConfig;
-import com.alibaba.dubbo.config.ProtocolConfig;
-import com.alibaba.dubbo.config.ReferenceConfig;
-import com.alibaba.dubbo.config.RegistryConfig;
-import com.alibaba.dubbo.rpc.RpcException;
-
 public class XAResourceDeserializerImpl implements XAResourceDeserializer, ApplicationContextAware {
 	static final Logger logger = LoggerFactory.getLogger(XAResourceDeserializerImpl.class);
 	static Pattern pattern = Pattern.compile("^[^:]+\\s*:\\s*[^:]+\\s*:\\s*\\d+$");
@@ -64,7 +56,7 @@ public class XAResourceDeserializerImpl implements XAResourceDeserializer, Appli
 				RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 				RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
 
-				this.initializeRemoteParticipantIfNecessary(application);
+				CompensableReferenceFactory.getInstance().getParticipant(application, this.statefully);
 				registry.putRemoteNode(remoteAddr, remoteNode);
 			}
 
@@ -80,64 +72,6 @@ public class XAResourceDeserializerImpl implements XAResourceDeserializer, Appli
 
 	}
 
-	private void initializeRemoteParticipantIfNecessary(final String system) throws RpcException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		final String application = StringUtils.trimToEmpty(system).intern();
-		RemoteCoordinator remoteParticipant = participantRegistry.getParticipant(application);
-		if (remoteParticipant == null) {
-			synchronized (application) {
-				RemoteCoordinator participant = participantRegistry.getParticipant(application);
-				if (participant == null) {
-					this.processInitRemoteParticipantIfNecessary(application);
-				}
-			} // end-synchronized (target)
-		} // end-if (remoteParticipant == null)
-	}
-
-	private void processInitRemoteParticipantIfNecessary(String application) {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
-
-		RemoteCoordinator participant = participantRegistry.getParticipant(application);
-		if (participant == null) {
-			ApplicationConfig applicationConfig = beanRegistry.getBean(ApplicationConfig.class);
-			RegistryConfig registryConfig = beanRegistry.getBean(RegistryConfig.class);
-			ProtocolConfig protocolConfig = beanRegistry.getBean(ProtocolConfig.class);
-
-			ReferenceConfig<RemoteCoordinator> referenceConfig = new ReferenceConfig<RemoteCoordinator>();
-			referenceConfig.setInterface(RemoteCoordinator.class);
-			referenceConfig.setTimeout(6 * 1000);
-			referenceConfig.setCluster("failfast");
-			referenceConfig.setFilter("bytetcc");
-			referenceConfig.setCheck(false);
-			referenceConfig.setRetries(-1);
-			referenceConfig.setScope(Constants.SCOPE_REMOTE);
-
-			if (this.statefully) {
-				referenceConfig.setGroup(String.format("x-%s", application));
-				referenceConfig.setLoadbalance("bytetcc");
-			} else {
-				referenceConfig.setGroup(String.format("z-%s", application));
-			}
-
-			referenceConfig.setApplication(applicationConfig);
-			if (registryConfig != null) {
-				referenceConfig.setRegistry(registryConfig);
-			} // end-if (registryConfig != null)
-
-			if (protocolConfig != null) {
-				referenceConfig.setProtocol(protocolConfig.getName());
-			} // end-if (protocolConfig != null)
-
-			RemoteCoordinator reference = referenceConfig.get();
-			if (reference == null) {
-				throw new RpcException("Cannot get the application name of the remote application.");
-			} // end-if (reference == null)
-
-			participantRegistry.putParticipant(application, reference);
-		}
-	}
-
 	public XAResourceDeserializer getResourceDeserializer() {
 		return resourceDeserializer;
 	}
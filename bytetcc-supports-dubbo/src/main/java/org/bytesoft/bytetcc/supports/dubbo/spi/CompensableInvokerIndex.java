@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.dubbo.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bytesoft.transaction.remote.RemoteAddr;
+
+import com.alibaba.dubbo.rpc.Invoker;
+
+final class CompensableInvokerIndex {
+	private final List<?> source;
+	private final List<Object> invokerList;
+	private final Map<RemoteAddr, Invoker<?>> invokers = new HashMap<RemoteAddr, Invoker<?>>();
+	private final Set<String> applications = new HashSet<String>();
+	private boolean resolved = true;
+
+	public CompensableInvokerIndex(List<?> invokerList) {
+		this.source = invokerList;
+		this.invokerList = new ArrayList<Object>(invokerList);
+	}
+
+	public void putInvoker(RemoteAddr remoteAddr, String application, Invoker<?> invoker) {
+		this.invokers.put(remoteAddr, invoker);
+		if (application == null) {
+			this.resolved = false;
+		} else {
+			this.applications.add(application);
+		}
+	}
+
+	public boolean matches(List<?> invokerList) {
+		if (this.resolved == false) {
+			return false;
+		} else if (this.source == invokerList) {
+			return true;
+		} else if (invokerList == null || this.invokerList.size() != invokerList.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < invokerList.size(); i++) {
+			if (this.invokerList.get(i) != invokerList.get(i)) {
+				return false;
+			}
+		} // end-for (int i = 0; i < invokerList.size(); i++)
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> Invoker<T> getInvoker(RemoteAddr remoteAddr) {
+		return (Invoker<T>) this.invokers.get(remoteAddr);
+	}
+
+	public Set<String> getApplications() {
+		return Collections.unmodifiableSet(this.applications);
+	}
+
+	public boolean isResolved() {
+		return this.resolved;
+	}
+
+}
@@ -16,32 +16,28 @@
 package org.bytesoft.bytetcc.supports.dubbo.spi;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
-import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.bytetcc.CompensableCoordinator;
 import org.bytesoft.bytetcc.CompensableTransactionImpl;
 import org.bytesoft.bytetcc.supports.dubbo.CompensableBeanRegistry;
+import org.bytesoft.bytetcc.supports.dubbo.CompensableReferenceFactory;
 import org.bytesoft.bytetcc.supports.dubbo.ext.ILoadBalancer;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.transaction.archive.XAResourceArchive;
 import org.bytesoft.transaction.remote.RemoteAddr;
-import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
-import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
-import com.alibaba.dubbo.config.ApplicationConfig;
-import com.alibaba.dubbo.config.ProtocolConfig;
-import com.alibaba.dubbo.config.ReferenceConfig;
-import com.alibaba.dubbo.config.RegistryConfig;
 import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
 import com.alibaba.dubbo.rpc.RpcException;
@@ -53,6 +49,9 @@ public final class CompensableLoadBalance implements LoadBalance {
 
 	private ILoadBalancer loadBalancer;
 
+	private final Map<String, CompensableInvokerIndex> indexes = new ConcurrentHashMap<String, CompensableInvokerIndex>();
+	private final Map<String, RemoteAddr> remoteAddrs = new ConcurrentHashMap<String, RemoteAddr>();
+
 	private void fireInitializeIfNecessary() {
 		if (this.loadBalancer == null) {
 			this.initializeIfNecessary();
@@ -70,7 +69,6 @@ public final class CompensableLoadBalance implements LoadBalance {
 
 	public <T> Invoker<T> select(List<Invoker<T>> invokers, URL url, Invocation invocation) throws RpcException {
 		CompensableBeanFactory beanFactory = CompensableBeanRegistry.getInstance().getBeanFactory();
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 		CompensableManager compensableManager = beanFactory.getCompensableManager();
 
 		if (invokers == null || invokers.isEmpty()) {
@@ -84,136 +82,71 @@ public final class CompensableLoadBalance implements LoadBalance {
 			return this.fireChooseInvoker(invokers, url, invocation);
 		}
 
-		RpcException rpcException = null;
-		for (int i = 0; invokers != null && i < invokers.size(); i++) {
-			Invoker<T> invoker = invokers.get(i);
-			URL invokerUrl = invoker.getUrl();
-			RemoteAddr remoteAddr = new RemoteAddr();
-			remoteAddr.setServerHost(invokerUrl.getHost());
-			remoteAddr.setServerPort(invokerUrl.getPort());
-
-			if (participantRegistry.containsRemoteNode(remoteAddr) == false) {
-				this.initializeRemoteParticipantIdentifier(remoteAddr);
-			}
-			RemoteNode remoteNode = participantRegistry.getRemoteNode(remoteAddr);
-			if (remoteNode == null || StringUtils.isBlank(remoteNode.getServiceKey())) {
-				if (rpcException == null) {
-					rpcException = new RpcException("Cannot get application name of remote node!");
-				} else {
-					logger.warn("Cannot get application name of remote node({})!", remoteAddr);
-				}
-			}
-
-			String application = remoteNode.getServiceKey();
+		CompensableInvokerIndex invokerIndex = this.getInvokerIndex(invokers, url);
+		for (String application : invokerIndex.getApplications()) {
 			XAResourceDescriptor participant = compensable.getRemoteCoordinator(application);
 			if (participant == null) {
 				continue;
-			} // end-if (participant==null)
+			} // end-if (participant == null)
 
-			RemoteAddr expectAddr = CommonUtils.getRemoteAddr(participant.getIdentifier());
-			if (remoteAddr.equals(expectAddr)) {
-				if (invoker.isAvailable()) {
-					return invoker;
-				} // end-if (invoker.isAvailable())
-
-				throw new RpcException("The instance has been enlisted is currently unavailable.");
-			}
+			RemoteAddr expectAddr = this.getRemoteAddr(participant.getIdentifier());
+			Invoker<T> invoker = invokerIndex.getInvoker(expectAddr);
+			if (invoker == null) {
+				throw new RpcException("There is already an instance of the same application being enlisted.");
+			} else if (invoker.isAvailable()) {
+				return invoker;
+			} // end-if (invoker.isAvailable())
 
-			rpcException = new RpcException("There is already an instance of the same application being enlisted.");
+			throw new RpcException("The instance has been enlisted is currently unavailable.");
 		}
 
-		if (rpcException != null) {
-			throw rpcException;
+		if (invokerIndex.isResolved() == false) {
+			throw new RpcException("Cannot get application name of remote node!");
 		} else {
 			return this.fireChooseInvoker(invokers, url, invocation);
 		}
 	}
 
-	private void initializeRemoteParticipantIdentifier(RemoteAddr remoteAddr) {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		if (participantRegistry.containsPhysicalInstance(remoteAddr) == false) {
-			this.initializeRemoteParticipantIfNecessary(remoteAddr);
-		} // end-if (participantRegistry.containsPhysicalInstance(remoteAddr) == false)
-
-		if (participantRegistry.containsRemoteNode(remoteAddr) == false) {
-			this.initializeIdentifierIfNecessary(remoteAddr);
-		} // end-if (participantRegistry.containsRemoteNode(remoteAddr) == false)
-	}
-
-	private void initializeIdentifierIfNecessary(RemoteAddr remoteAddr) {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		RemoteCoordinator remoteCoordinator = participantRegistry.getPhysicalInstance(remoteAddr);
-		if (remoteCoordinator != null && participantRegistry.containsRemoteNode(remoteAddr) == false) {
-			String serverHost = remoteAddr.getServerHost();
-			int serverPort = remoteAddr.getServerPort();
-			final String target = String.format("%s:null:%s", serverHost, serverPort).intern();
-			synchronized (target) {
-				String identifier = remoteCoordinator.getIdentifier();
-				RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
-				participantRegistry.putRemoteNode(remoteAddr, remoteNode);
-			} // end-synchronized (target)
-		} // end-if (participantRegistry.containsRemoteNode(remoteAddr) == false)
-	}
+	private <T> CompensableInvokerIndex getInvokerIndex(List<Invoker<T>> invokers, URL url) {
+		String serviceKey = url.getServiceKey();
+		CompensableInvokerIndex invokerIndex = this.indexes.get(serviceKey);
+		if (invokerIndex != null && invokerIndex.matches(invokers)) {
+			return invokerIndex;
+		} // end-if (invokerIndex != null && invokerIndex.matches(invokers))
 
-	private void initializeRemoteParticipantIfNecessary(RemoteAddr remoteAddr) throws RpcException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		RemoteCoordinator physicalInst = participantRegistry.getPhysicalInstance(remoteAddr);
-		if (physicalInst == null) {
-			String serverHost = remoteAddr.getServerHost();
-			int serverPort = remoteAddr.getServerPort();
-			final String target = String.format("%s:%s", serverHost, serverPort).intern();
-			synchronized (target) {
-				RemoteCoordinator participant = participantRegistry.getPhysicalInstance(remoteAddr);
-				if (participant == null) {
-					this.processInitRemoteParticipantIfNecessary(remoteAddr);
-				}
-			} // end-synchronized (target)
-		} // end-if (physicalInst == null)
-	}
-
-	private void processInitRemoteParticipantIfNecessary(RemoteAddr remoteAddr) throws RpcException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
-		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableBeanFactory beanFactory = CompensableBeanRegistry.getInstance().getBeanFactory();
 		CompensableCoordinator compensableCoordinator = (CompensableCoordinator) beanFactory.getCompensableNativeParticipant();
+		CompensableReferenceFactory referenceFactory = CompensableReferenceFactory.getInstance();
+		boolean statefully = compensableCoordinator.isStatefully();
 
-		RemoteCoordinator participant = participantRegistry.getPhysicalInstance(remoteAddr);
-		if (participant == null) {
-			ApplicationConfig applicationConfig = beanRegistry.getBean(ApplicationConfig.class);
-			RegistryConfig registryConfig = beanRegistry.getBean(RegistryConfig.class);
-			ProtocolConfig protocolConfig = beanRegistry.getBean(ProtocolConfig.class);
-
-			ReferenceConfig<RemoteCoordinator> referenceConfig = new ReferenceConfig<RemoteCoordinator>();
-			referenceConfig.setInterface(RemoteCoordinator.class);
-			referenceConfig.setTimeout(6 * 1000);
-			referenceConfig.setCluster("failfast");
-			referenceConfig.setFilter("bytetcc");
-			referenceConfig.setCheck(false);
-			referenceConfig.setRetries(-1);
-			referenceConfig.setUrl(String.format("%s:%s", remoteAddr.getServerHost(), remoteAddr.getServerPort()));
-			referenceConfig.setScope(Constants.SCOPE_REMOTE);
-
-			if (compensableCoordinator.isStatefully()) {
-				referenceConfig.setGroup("x-bytetcc");
-			} else {
-				referenceConfig.setGroup("z-bytetcc");
-			}
+		invokerIndex = new CompensableInvokerIndex(invokers);
+		for (int i = 0; i < invokers.size(); i++) {
+			Invoker<T> invoker = invokers.get(i);
+			URL invokerUrl = invoker.getUrl();
+			RemoteAddr remoteAddr = new RemoteAddr();
+			remoteAddr.setServerHost(invokerUrl.getHost());
+			remoteAddr.setServerPort(invokerUrl.getPort());
 
-			referenceConfig.setApplication(applicationConfig);
-			if (registryConfig != null) {
-				referenceConfig.setRegistry(registryConfig);
+			RemoteNode remoteNode = referenceFactory.getRemoteNode(remoteAddr, statefully);
+			if (remoteNode == null || StringUtils.isBlank(remoteNode.getServiceKey())) {
+				logger.warn("Cannot get application name of remote node({})!", remoteAddr);
+				invokerIndex.putInvoker(remoteAddr, null, invoker);
+			} else {
+				invokerIndex.putInvoker(remoteAddr, remoteNode.getServiceKey(), invoker);
 			}
-			if (protocolConfig != null) {
-				referenceConfig.setProtocol(protocolConfig.getName());
-			} // end-if (protocolConfig != null)
+		}
 
-			RemoteCoordinator reference = referenceConfig.get();
-			if (reference == null) {
-				throw new RpcException("Cannot get the application name of the remote application.");
-			}
+		this.indexes.put(serviceKey, invokerIndex);
+		return invokerIndex;
+	}
 
-			participantRegistry.putPhysicalInstance(remoteAddr, reference);
-		}
+	private RemoteAddr getRemoteAddr(String identifier) {
+		RemoteAddr remoteAddr = this.remoteAddrs.get(identifier);
+		if (remoteAddr == null) {
+			remoteAddr = CommonUtils.getRemoteAddr(identifier);
+			this.remoteAddrs.put(identifier, remoteAddr);
+		} // end-if (remoteAddr == null)
+		return remoteAddr;
 	}
 
 	public <T> Invoker<T> fireChooseInvoker(List<Invoker<T>> invokers, URL url, Invocation invocation) throws RpcException {
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.dubbo.spi;
+
+import org.bytesoft.bytetcc.CompensableTransactionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.dubbo.remoting.RemotingException;
+import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
+import com.alibaba.dubbo.remoting.exchange.ResponseFuture;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
+
+abstract class CompensableResponseFuture implements ResponseFuture, ResponseCallback {
+	static final Logger logger = LoggerFactory.getLogger(CompensableResponseFuture.class);
+
+	private final Runnable forkedTask;
+
+	private Object response;
+	private Throwable error;
+	private boolean completed;
+	private ResponseCallback callback;
+
+	public CompensableResponseFuture(CompensableTransactionImpl transaction) throws IllegalStateException {
+		this.forkedTask = transaction.reserve(new Runnable() { // outstanding until the response is processed
+			public void run() {
+				processResponse();
+			}
+		});
+	}
+
+	/* invoked with the compensable transaction attached to the current thread. */
+	protected abstract Result onResponse(Result result) throws RpcException;
+
+	/* invoked with the compensable transaction attached to the current thread. */
+	protected abstract void onFailure(Throwable error);
+
+	public void initialize(ResponseFuture delegate) {
+		delegate.setCallback(this);
+	}
+
+	public void done(Object response) {
+		this.fireResponse(response, null);
+	}
+
+	public void caught(Throwable error) {
+		this.fireResponse(null, error);
+	}
+
+	private void fireResponse(Object response, Throwable error) {
+		synchronized (this) {
+			this.response = response;
+			this.error = error;
+		} // end-synchronized (this)
+
+		try {
+			this.forkedTask.run();
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while processing the asynchronous response!", rex);
+			synchronized (this) {
+				this.error = this.error == null ? rex : this.error;
+			} // end-synchronized (this)
+		}
+
+		ResponseCallback responseCallback = null;
+		synchronized (this) {
+			this.completed = true;
+			responseCallback = this.callback;
+			this.notifyAll();
+		} // end-synchronized (this)
+
+		if (responseCallback != null) {
+			this.invokeCallback(responseCallback);
+		} // end-if (responseCallback != null)
+	}
+
+	private void processResponse() {
+		Object response = null;
+		Throwable error = null;
+		synchronized (this) {
+			response = this.response;
+			error = this.error;
+		} // end-synchronized (this)
+
+		if (error != null) {
+			this.onFailure(error);
+			return;
+		} // end-if (error != null)
+
+		Result result = this.onResponse((Result) response);
+		synchronized (this) {
+			this.response = result;
+		} // end-synchronized (this)
+	}
+
+	private void invokeCallback(ResponseCallback responseCallback) {
+		Object response = null;
+		Throwable error = null;
+		synchronized (this) {
+			response = this.response;
+			error = this.error;
+		} // end-synchronized (this)
+
+		try {
+			if (error == null) {
+				responseCallback.done(response);
+			} else {
+				responseCallback.caught(error);
+			}
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while invoking the response callback!", rex);
+		}
+	}
+
+	public Object get() throws RemotingException {
+		return this.get(0);
+	}
+
+	public Object get(int timeoutInMillis) throws RemotingException {
+		synchronized (this) {
+			long expired = timeoutInMillis > 0 ? System.currentTimeMillis() + timeoutInMillis : 0;
+			while (this.completed == false) {
+				long waitMillis = timeoutInMillis > 0 ? expired - System.currentTimeMillis() : 0;
+				if (timeoutInMillis > 0 && waitMillis <= 0) {
+					throw new RpcException(RpcException.TIMEOUT_EXCEPTION, "Waiting for the response timed out!");
+				} // end-if (timeoutInMillis > 0 && waitMillis <= 0)
+
+				try {
+					this.wait(waitMillis);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new RpcException(ex);
+				}
+			} // end-while (this.completed == false)
+
+			if (this.error == null) {
+				return this.response;
+			} else if (RemotingException.class.isInstance(this.error)) {
+				throw (RemotingException) this.error;
+			} else if (RpcException.class.isInstance(this.error)) {
+				throw (RpcException) this.error;
+			} else {
+				throw new RpcException(this.error);
+			}
+		} // end-synchronized (this)
+	}
+
+	public void setCallback(ResponseCallback callback) {
+		synchronized (this) {
+			if (this.completed == false) {
+				this.callback = callback;
+				return;
+			} // end-if (this.completed == false)
+		} // end-synchronized (this)
+
+		this.invokeCallback(callback);
+	}
+
+	public synchronized boolean isDone() {
+		return this.completed;
+	}
+
+}
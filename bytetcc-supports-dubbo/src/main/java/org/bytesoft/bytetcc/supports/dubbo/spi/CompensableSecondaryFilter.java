@@ -20,9 +20,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Proxy;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import javax.transaction.xa.XAException;
-import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,7 +31,9 @@ import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry.InvocationDef;
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytetcc.CompensableTransactionImpl;
 import org.bytesoft.bytetcc.supports.dubbo.CompensableBeanRegistry;
+import org.bytesoft.bytetcc.supports.dubbo.CompensableReferenceFactory;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
@@ -40,7 +42,6 @@ import org.bytesoft.compensable.CompensableTransaction;
 import org.bytesoft.compensable.RemotingException;
 import org.bytesoft.compensable.TransactionContext;
 import org.bytesoft.transaction.TransactionException;
-import org.bytesoft.transaction.TransactionParticipant;
 import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
@@ -52,12 +53,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Propagation;
 
-import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
-import com.alibaba.dubbo.config.ApplicationConfig;
-import com.alibaba.dubbo.config.ProtocolConfig;
-import com.alibaba.dubbo.config.ReferenceConfig;
-import com.alibaba.dubbo.config.RegistryConfig;
 import com.alibaba.dubbo.rpc.Filter;
 import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
@@ -65,16 +61,18 @@ import com.alibaba.dubbo.rpc.Result;
 import com.alibaba.dubbo.rpc.RpcContext;
 import com.alibaba.dubbo.rpc.RpcException;
 import com.alibaba.dubbo.rpc.RpcResult;
+import com.alibaba.dubbo.rpc.protocol.dubbo.FutureAdapter;
+import com.alibaba.dubbo.rpc.support.RpcUtils;
 import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
 
 public class CompensableSecondaryFilter implements Filter {
-	static final String KEY_XA_RESOURCE_START = "start";
 	static final String KEY_XA_GET_IDENTIFIER = "getIdentifier";
 	static final String KEY_XA_GET_APPLICATION = "getApplication";
 	static final String KEY_XA_GET_REMOTEADDR = "getRemoteAddr";
 	static final String KEY_XA_GET_REMOTENODE = "getRemoteNode";
 	static final String KEY_REMOTE_CIRCULARLY = "circularly";
+	static final String KEY_PARTICIPANT_READONLY = "readonly";
 
 	static final Logger logger = LoggerFactory.getLogger(CompensableSecondaryFilter.class);
 
@@ -87,23 +85,9 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	public Result providerInvoke(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
-		String interfaceClazz = RpcContext.getContext().getUrl().getServiceInterface();
-
-		boolean participantFlag = TransactionParticipant.class.getName().equals(interfaceClazz);
-		boolean xaResourceFlag = XAResource.class.getName().equals(interfaceClazz);
-		boolean coordinatorFlag = RemoteCoordinator.class.getName().equals(interfaceClazz);
-
-		if (participantFlag == false && xaResourceFlag == false && coordinatorFlag == false) {
+		if (CompensableServiceFilter.isTransactionInterface(invoker.getInterface()) == false) {
 			return this.providerInvokeForSVC(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_RESOURCE_START)) {
-			return this.providerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_IDENTIFIER)) {
-			return this.providerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_APPLICATION)) {
-			return this.providerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_REMOTEADDR)) {
-			return this.providerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_REMOTENODE)) {
+		} else if (CompensableServiceFilter.isKeyMethod(invocation.getMethodName())) {
 			return this.providerInvokeForKey(invoker, invocation);
 		} else {
 			return this.providerInvokeForTCC(invoker, invocation);
@@ -197,13 +181,16 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	public Result providerInvokeForSVC(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
+		String instanceId = invocation.getAttachment(RemoteCoordinator.class.getName());
+		if (StringUtils.isEmpty(instanceId) && StringUtils.isEmpty(invocation.getAttachment(TransactionContext.class.getName()))) {
+			return invoker.invoke(invocation); // the consumer propagates no compensable context
+		} // end-if (StringUtils.isEmpty(instanceId) && ...)
+
 		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
 		CompensableManager compensableManager = beanFactory.getCompensableManager();
 
-		String instanceId = invocation.getAttachment(RemoteCoordinator.class.getName());
-
 		this.registerRemoteParticipantIfNecessary(instanceId);
 
 		String application = CommonUtils.getApplication(instanceId);
@@ -218,6 +205,7 @@ public class CompensableSecondaryFilter implements Filter {
 
 		String propagatedBy = null;
 		boolean failure = false;
+		Result result = null;
 		try {
 			this.beforeProviderInvokeForSVC(invocation, request, response);
 
@@ -225,7 +213,8 @@ public class CompensableSecondaryFilter implements Filter {
 			TransactionContext transactionContext = transaction == null ? null : transaction.getTransactionContext();
 			propagatedBy = transactionContext == null ? null : String.valueOf(transactionContext.getPropagatedBy());
 
-			return this.wrapResultForProvider(invoker, invocation, propagatedBy, true);
+			result = this.wrapResultForProvider(invoker, invocation, propagatedBy, true);
+			return result;
 		} catch (RemotingException rex) {
 			failure = true;
 
@@ -238,6 +227,7 @@ public class CompensableSecondaryFilter implements Filter {
 		} finally {
 			try {
 				this.afterProviderInvokeForSVC(invocation, request, response);
+				this.attachParticipantVoteForProvider(result, response);
 			} catch (RemotingException rex) {
 				if (failure) {
 					logger.error("Error occurred in remote call!", rex);
@@ -311,6 +301,19 @@ public class CompensableSecondaryFilter implements Filter {
 		return result;
 	}
 
+	private void attachParticipantVoteForProvider(Result result, TransactionResponseImpl response) {
+		Object value = result == null ? null : result.getValue();
+		TransactionContext transactionContext = (TransactionContext) response.getTransactionContext();
+		if (CompensableServiceFilter.InvocationResult.class.isInstance(value) == false) {
+			return;
+		} else if (transactionContext == null || transactionContext.isParticipantReadonly() == false) {
+			return;
+		}
+
+		CompensableServiceFilter.InvocationResult wrapped = (CompensableServiceFilter.InvocationResult) value;
+		wrapped.setVariable(KEY_PARTICIPANT_READONLY, Boolean.TRUE.toString());
+	}
+
 	private void beforeProviderInvokeForSVC(Invocation invocation, TransactionRequestImpl request,
 			TransactionResponseImpl response) {
 		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
@@ -367,23 +370,9 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	public Result consumerInvoke(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
-		String interfaceClazz = RpcContext.getContext().getUrl().getServiceInterface();
-
-		boolean participantFlag = TransactionParticipant.class.getName().equals(interfaceClazz);
-		boolean xaResourceFlag = XAResource.class.getName().equals(interfaceClazz);
-		boolean coordinatorFlag = RemoteCoordinator.class.getName().equals(interfaceClazz);
-
-		if (participantFlag == false && xaResourceFlag == false && coordinatorFlag == false) {
+		if (CompensableServiceFilter.isTransactionInterface(invoker.getInterface()) == false) {
 			return this.consumerInvokeForSVC(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_RESOURCE_START)) {
-			return this.consumerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_IDENTIFIER)) {
-			return this.consumerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_APPLICATION)) {
-			return this.consumerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_REMOTEADDR)) {
-			return this.consumerInvokeForKey(invoker, invocation);
-		} else if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_REMOTENODE)) {
+		} else if (CompensableServiceFilter.isKeyMethod(invocation.getMethodName())) {
 			return this.consumerInvokeForKey(invoker, invocation);
 		} else {
 			return this.consumerInvokeForTCC(invoker, invocation);
@@ -416,11 +405,8 @@ public class CompensableSecondaryFilter implements Filter {
 
 			this.registerRemoteParticipantIfNecessary(instanceId);
 
-			String interfaceClazz = RpcContext.getContext().getUrl().getServiceInterface();
-			boolean participantFlag = TransactionParticipant.class.getName().equals(interfaceClazz);
-			boolean xaResourceFlag = XAResource.class.getName().equals(interfaceClazz);
-			boolean coordinatorFlag = RemoteCoordinator.class.getName().equals(interfaceClazz);
-			boolean resultInitRequired = (participantFlag || xaResourceFlag || coordinatorFlag) && result.getValue() == null;
+			boolean transactionFlag = CompensableServiceFilter.isTransactionInterface(invoker.getInterface());
+			boolean resultInitRequired = transactionFlag && result.getValue() == null;
 			if (resultInitRequired) {
 				if (StringUtils.equals(invocation.getMethodName(), KEY_XA_GET_IDENTIFIER)) {
 					result.setValue(instanceId);
@@ -462,13 +448,15 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	public Result consumerInvokeForSVC(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
-		RemoteCoordinator compensableCoordinator = (RemoteCoordinator) beanFactory.getCompensableNativeParticipant();
 		CompensableManager transactionManager = beanFactory.getCompensableManager();
 		CompensableTransaction transaction = transactionManager.getCompensableTransactionQuietly();
-		TransactionContext nativeTransactionContext = transaction == null ? null : transaction.getTransactionContext();
+		if (transaction == null) {
+			return CompensableServiceFilter.unwrapResult(invoker.invoke(invocation));
+		} // end-if (transaction == null)
+
+		TransactionContext nativeTransactionContext = transaction.getTransactionContext();
 
 		InvocationDef invocationDef = new InvocationDef();
 		invocationDef.setInterfaceClass(invoker.getInterface());
@@ -484,40 +472,21 @@ public class CompensableSecondaryFilter implements Filter {
 		TransactionResponseImpl response = new TransactionResponseImpl();
 		response.setSourceTransactionCoordinator(participant);
 
+		if (RpcUtils.isAsync(invoker.getUrl(), invocation)) {
+			return this.consumerInvokeForSVCAsync(invoker, invocation, transaction, invocationDef, request, response);
+		} // end-if (RpcUtils.isAsync(invoker.getUrl(), invocation))
+
 		RpcResult result = null;
 		RpcException invokeError = null;
 		Throwable serverError = null;
+		boolean participantReadonly = false;
 		try {
 			this.beforeConsumerInvokeForSVC(invocation, request, response);
 			result = (RpcResult) invoker.invoke(invocation);
 
-			Object value = result.getValue();
-			if (CompensableServiceFilter.InvocationResult.class.isInstance(value)) {
-				CompensableServiceFilter.InvocationResult wrapped = (CompensableServiceFilter.InvocationResult) value;
-				result.setValue(null);
-				result.setException(null);
-
-				if (wrapped.isFailure()) {
-					result.setException(wrapped.getError());
-					serverError = wrapped.getError();
-				} else {
-					result.setValue(wrapped.getValue());
-				}
-
-				String propagatedBy = (String) wrapped.getVariable(Propagation.class.getName());
-				String instanceId = (String) wrapped.getVariable(RemoteCoordinator.class.getName());
-				// String circularly = (String) wrapped.getVariable(KEY_REMOTE_CIRCULARLY);
-
-				boolean participantInvolved = StringUtils.isNotBlank(propagatedBy) || StringUtils.isNotBlank(instanceId);
-
-				participantRegistry.putInvocationDef(invocationDef, CommonUtils.getRemoteNode(instanceId));
-
-				String identifier = compensableCoordinator.getIdentifier();
-				// boolean circularlyFlag = StringUtils.equalsIgnoreCase(circularly, "TRUE");
-				boolean participantDelistRequired = !participantInvolved || !CommonUtils.equals(propagatedBy, identifier);
-				response.setParticipantDelistFlag(participantDelistRequired);
-				response.setParticipantEnlistFlag(request.isParticipantEnlistFlag());
-			}
+			CompensableServiceFilter.InvocationResult wrapped = this.unwrapResultForSVC(result, invocationDef, request, response);
+			serverError = wrapped == null ? null : wrapped.getError();
+			participantReadonly = wrapped != null && Boolean.valueOf((String) wrapped.getVariable(KEY_PARTICIPANT_READONLY));
 		} catch (RemotingException rex) {
 			logger.error("Error occurred in remote call!", rex);
 			invokeError = new RpcException(rex.getMessage());
@@ -528,7 +497,7 @@ public class CompensableSecondaryFilter implements Filter {
 			invokeError = new RpcException(rex.getMessage());
 		} finally {
 			try {
-				this.afterConsumerInvokeForSVC(invocation, request, response);
+				this.afterConsumerInvokeForSVC(invocation, request, response, participantReadonly);
 			} catch (RemotingException rex) {
 				if (invokeError == null) {
 					throw new RpcException(rex.getMessage());
@@ -567,9 +536,121 @@ public class CompensableSecondaryFilter implements Filter {
 
 	}
 
-	private RemoteCoordinator getParticipantByRemoteAddr(Invoker<?> invoker, InvocationDef invocationDef) {
+	private CompensableServiceFilter.InvocationResult unwrapResultForSVC(RpcResult result, InvocationDef invocationDef,
+			TransactionRequestImpl request, TransactionResponseImpl response) {
 		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		RemoteCoordinator compensableCoordinator = (RemoteCoordinator) beanFactory.getCompensableNativeParticipant();
+
+		Object value = result.getValue();
+		if (CompensableServiceFilter.InvocationResult.class.isInstance(value) == false) {
+			return null;
+		} // end-if (CompensableServiceFilter.InvocationResult.class.isInstance(value) == false)
+
+		CompensableServiceFilter.InvocationResult wrapped = (CompensableServiceFilter.InvocationResult) value;
+		result.setValue(null);
+		result.setException(null);
+
+		if (wrapped.isFailure()) {
+			result.setException(wrapped.getError());
+		} else {
+			result.setValue(wrapped.getValue());
+		}
+
+		String propagatedBy = (String) wrapped.getVariable(Propagation.class.getName());
+		String instanceId = (String) wrapped.getVariable(RemoteCoordinator.class.getName());
+		// String circularly = (String) wrapped.getVariable(KEY_REMOTE_CIRCULARLY);
+
+		boolean participantInvolved = StringUtils.isNotBlank(propagatedBy) || StringUtils.isNotBlank(instanceId);
+
+		participantRegistry.putInvocationDef(invocationDef, CommonUtils.getRemoteNode(instanceId));
+
+		String identifier = compensableCoordinator.getIdentifier();
+		// boolean circularlyFlag = StringUtils.equalsIgnoreCase(circularly, "TRUE");
+		boolean participantDelistRequired = !participantInvolved || !CommonUtils.equals(propagatedBy, identifier);
+		response.setParticipantDelistFlag(participantDelistRequired);
+		response.setParticipantEnlistFlag(request.isParticipantEnlistFlag());
+
+		return wrapped;
+	}
+
+	private Result consumerInvokeForSVCAsync(Invoker<?> invoker, final Invocation invocation,
+			CompensableTransaction transaction, final InvocationDef invocationDef, final TransactionRequestImpl request,
+			final TransactionResponseImpl response) throws RpcException {
+		CompensableResponseFuture responseFuture = null;
+		try {
+			responseFuture = new CompensableResponseFuture((CompensableTransactionImpl) transaction) {
+				protected Result onResponse(Result result) throws RpcException {
+					return completeConsumerInvokeForSVC((RpcResult) result, invocation, invocationDef, request, response);
+				}
 
+				protected void onFailure(Throwable error) {
+					afterConsumerInvokeForSVC(invocation, request, response, false);
+				}
+			};
+		} catch (IllegalStateException ex) {
+			throw new RpcException("Asynchronous invocation is only supported in the try phase!", ex);
+		}
+
+		Result result = null;
+		try {
+			this.beforeConsumerInvokeForSVC(invocation, request, response);
+			result = invoker.invoke(invocation);
+		} catch (RuntimeException rex) {
+			responseFuture.caught(rex);
+			throw RpcException.class.isInstance(rex) ? (RpcException) rex : new RpcException(rex.getMessage());
+		}
+
+		Future<Object> future = RpcContext.getContext().getFuture();
+		if (FutureAdapter.class.isInstance(future)) {
+			responseFuture.initialize(((FutureAdapter<Object>) future).getFuture());
+			RpcContext.getContext().setFuture(new FutureAdapter<Object>(responseFuture));
+			return result;
+		} // end-if (FutureAdapter.class.isInstance(future))
+
+		responseFuture.done(result); // the invocation has been completed synchronously
+		try {
+			return (Result) responseFuture.get();
+		} catch (com.alibaba.dubbo.remoting.RemotingException ex) {
+			throw new RpcException(ex);
+		}
+	}
+
+	private Result completeConsumerInvokeForSVC(RpcResult result, Invocation invocation, InvocationDef invocationDef,
+			TransactionRequestImpl request, TransactionResponseImpl response) throws RpcException {
+		RpcException invokeError = null;
+		CompensableServiceFilter.InvocationResult wrapped = null;
+		try {
+			wrapped = this.unwrapResultForSVC(result, invocationDef, request, response);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred in remote call!", rex);
+			invokeError = new RpcException(rex.getMessage());
+		}
+
+		boolean participantReadonly = wrapped != null && Boolean.valueOf((String) wrapped.getVariable(KEY_PARTICIPANT_READONLY));
+		try {
+			this.afterConsumerInvokeForSVC(invocation, request, response, participantReadonly);
+		} catch (RuntimeException rex) {
+			if (invokeError == null) {
+				throw RpcException.class.isInstance(rex) ? (RpcException) rex : new RpcException(rex.getMessage());
+			}
+			logger.error("Error occurred in remote call!", rex);
+		}
+
+		Throwable serverError = wrapped == null ? null : wrapped.getError();
+		if (invokeError != null) {
+			throw invokeError;
+		} else if (RpcException.class.isInstance(serverError)) {
+			throw (RpcException) serverError;
+		} else if (RemotingException.class.isInstance(serverError)) {
+			throw new RpcException(serverError.getMessage());
+		} else {
+			return result;
+		}
+	}
+
+	private RemoteCoordinator getParticipantByRemoteAddr(Invoker<?> invoker, InvocationDef invocationDef) {
 		URL targetUrl = invoker.getUrl();
 		String targetAddr = targetUrl.getIp();
 		int targetPort = targetUrl.getPort();
@@ -578,15 +659,11 @@ public class CompensableSecondaryFilter implements Filter {
 		remoteAddr.setServerHost(targetAddr);
 		remoteAddr.setServerPort(targetPort);
 
-		if (participantRegistry.containsPhysicalInstance(remoteAddr) == false) {
-			this.initializeRemoteParticipantIfNecessary(remoteAddr);
-		}
-
 		RemoteNode invocationContext = new RemoteNode();
 		invocationContext.setServerHost(targetAddr);
 		invocationContext.setServerPort(targetPort);
 
-		RemoteCoordinator remoteCoordinator = participantRegistry.getPhysicalInstance(remoteAddr);
+		RemoteCoordinator remoteCoordinator = CompensableReferenceFactory.getInstance().getPhysicalInstance(remoteAddr, true);
 
 		DubboRemoteCoordinator dubboCoordinator = new DubboRemoteCoordinator();
 		dubboCoordinator.setInvocationContext(invocationContext);
@@ -627,7 +704,7 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	private void afterConsumerInvokeForSVC(Invocation invocation, TransactionRequestImpl request,
-			TransactionResponseImpl response) {
+			TransactionResponseImpl response, boolean participantReadonly) {
 		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
 		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
@@ -640,6 +717,7 @@ public class CompensableSecondaryFilter implements Filter {
 				ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
 				HessianInput input = new HessianInput(bais);
 				TransactionContext remoteTransactionContext = (TransactionContext) input.readObject();
+				remoteTransactionContext.setParticipantReadonly(participantReadonly);
 				response.setTransactionContext(remoteTransactionContext);
 			}
 		} catch (IOException ex) {
@@ -672,58 +750,4 @@ public class CompensableSecondaryFilter implements Filter {
 		}
 	}
 
-	private void initializeRemoteParticipantIfNecessary(RemoteAddr remoteAddr) throws RpcException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		RemoteCoordinator physicalInst = participantRegistry.getPhysicalInstance(remoteAddr);
-		if (physicalInst == null) {
-			String serverHost = remoteAddr.getServerHost();
-			int serverPort = remoteAddr.getServerPort();
-			final String target = String.format("%s:%s", serverHost, serverPort).intern();
-			synchronized (target) {
-				RemoteCoordinator participant = participantRegistry.getPhysicalInstance(remoteAddr);
-				if (participant == null) {
-					this.processInitRemoteParticipantIfNecessary(remoteAddr);
-				}
-			} // end-synchronized (target)
-		} // end-if (physicalInst == null)
-	}
-
-	private void processInitRemoteParticipantIfNecessary(RemoteAddr remoteAddr) throws RpcException {
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
-		CompensableBeanRegistry beanRegistry = CompensableBeanRegistry.getInstance();
-
-		RemoteCoordinator participant = participantRegistry.getPhysicalInstance(remoteAddr);
-		if (participant == null) {
-			ApplicationConfig applicationConfig = beanRegistry.getBean(ApplicationConfig.class);
-			RegistryConfig registryConfig = beanRegistry.getBean(RegistryConfig.class);
-			ProtocolConfig protocolConfig = beanRegistry.getBean(ProtocolConfig.class);
-
-			ReferenceConfig<RemoteCoordinator> referenceConfig = new ReferenceConfig<RemoteCoordinator>();
-			referenceConfig.setInterface(RemoteCoordinator.class);
-			referenceConfig.setTimeout(6 * 1000);
-			referenceConfig.setCluster("failfast");
-			referenceConfig.setFilter("bytetcc");
-			referenceConfig.setGroup("x-bytetcc");
-			referenceConfig.setCheck(false);
-			referenceConfig.setRetries(-1);
-			referenceConfig.setUrl(String.format("%s:%s", remoteAddr.getServerHost(), remoteAddr.getServerPort()));
-			referenceConfig.setScope(Constants.SCOPE_REMOTE);
-
-			referenceConfig.setApplication(applicationConfig);
-			if (registryConfig != null) {
-				referenceConfig.setRegistry(registryConfig);
-			}
-			if (protocolConfig != null) {
-				referenceConfig.setProtocol(protocolConfig.getName());
-			} // end-if (protocolConfig != null)
-
-			RemoteCoordinator reference = referenceConfig.get();
-			if (reference == null) {
-				throw new RpcException("Cannot get the application name of the remote application.");
-			}
-
-			participantRegistry.putPhysicalInstance(remoteAddr, reference);
-		}
-	}
-
 }
@@ -16,12 +16,19 @@
 package org.bytesoft.bytetcc.supports.dubbo.spi;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+
+import javax.transaction.xa.XAResource;
 
 import org.bytesoft.bytetcc.CompensableCoordinator;
 import org.bytesoft.bytetcc.supports.dubbo.CompensableBeanRegistry;
 import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.transaction.TransactionParticipant;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
 
 import com.alibaba.com.caucho.hessian.io.HessianHandle;
 import com.alibaba.dubbo.rpc.Filter;
@@ -29,8 +36,12 @@ import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
 import com.alibaba.dubbo.rpc.Result;
 import com.alibaba.dubbo.rpc.RpcException;
+import com.alibaba.dubbo.rpc.RpcResult;
 
 public class CompensableServiceFilter implements Filter {
+	static final Set<String> KEY_METHODS = new HashSet<String>(
+			Arrays.asList("start", "getIdentifier", "getApplication", "getRemoteAddr", "getRemoteNode"));
+
 	private final Filter primaryFilter = new CompensablePrimaryFilter();
 	private final Filter secondaryFilter = new CompensableSecondaryFilter();
 
@@ -45,6 +56,34 @@ public class CompensableServiceFilter implements Filter {
 		}
 	}
 
+	static boolean isTransactionInterface(Class<?> interfaceClass) {
+		return TransactionParticipant.class == interfaceClass //
+				|| XAResource.class == interfaceClass || RemoteCoordinator.class == interfaceClass;
+	}
+
+	static boolean isKeyMethod(String methodName) {
+		return KEY_METHODS.contains(methodName);
+	}
+
+	static Result unwrapResult(Result result) {
+		Object value = result.getValue();
+		if (InvocationResult.class.isInstance(value) == false) {
+			return result;
+		} // end-if (InvocationResult.class.isInstance(value) == false)
+
+		InvocationResult wrapped = (InvocationResult) value;
+		RpcResult unwrapped = (RpcResult) result;
+		unwrapped.setValue(null);
+		unwrapped.setException(null);
+
+		if (wrapped.isFailure()) {
+			unwrapped.setException(wrapped.getError());
+		} else {
+			unwrapped.setValue(wrapped.getValue());
+		}
+		return unwrapped;
+	}
+
 	static class InvocationResult implements HessianHandle, Serializable {
 		private static final long serialVersionUID = 1L;
 
@@ -37,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
@@ -49,6 +50,7 @@ public class SpringBootCoordinator implements InvocationHandler {
 
 	private String identifier;
 	private Environment environment;
+	private transient String baseURL;
 
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 		Class<?> clazz = method.getDeclaringClass();
@@ -94,35 +96,38 @@ public class SpringBootCoordinator implements InvocationHandler {
 	}
 
 	public Object invokePostCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
+		return this.invokeCoordinator(method, args, HttpMethod.POST);
+	}
+
+	public Object invokeGetCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
+		return this.invokeCoordinator(method, args, HttpMethod.GET);
+	}
 
+	private Object invokeCoordinator(Method method, Object[] args, HttpMethod httpMethod) throws XAException {
 		Class<?> returnType = method.getReturnType();
 		try {
 			RestTemplate transactionRestTemplate = SpringBootBeanRegistry.getInstance().getRestTemplate();
 			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
 
-			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(this.identifier);
-
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
-			ber.append(remoteAddr.getServerHost()).append(":").append(remoteAddr.getServerPort());
-			ber.append("/org/bytesoft/bytetcc/");
-
-			ber.append(method.getName());
-			for (int i = 0; i < args.length; i++) {
-				Serializable arg = (Serializable) args[i];
-				ber.append("/").append(this.serialize(arg));
-			}
-
-			ResponseEntity<?> response = restTemplate.postForEntity(ber.toString(), null, returnType, new Object[0]);
+			String requestURL = this.getRequestURL(method, args);
+			ResponseEntity<?> response = HttpMethod.GET.equals(httpMethod) //
+					? restTemplate.getForEntity(requestURL, returnType, new Object[0])
+					: restTemplate.postForEntity(requestURL, null, returnType, new Object[0]);
 
 			return response.getBody();
-		} catch (HttpClientErrorException ex) {
+		} catch (Exception ex) {
+			throw this.convertException(ex);
+		}
+	}
+
+	private XAException convertException(Throwable ex) {
+		if (HttpClientErrorException.class.isInstance(ex)) {
 			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
 			xaEx.initCause(ex);
-			throw xaEx;
-		} catch (HttpServerErrorException ex) {
+			return xaEx;
+		} else if (HttpServerErrorException.class.isInstance(ex)) {
 			// int statusCode = ex.getRawStatusCode();
-			HttpHeaders headers = ex.getResponseHeaders();
+			HttpHeaders headers = ((HttpServerErrorException) ex).getResponseHeaders();
 			String failureText = StringUtils.trimToNull(headers.getFirst("failure"));
 			String errorText = StringUtils.trimToNull(headers.getFirst("XA_XAER"));
 
@@ -134,79 +139,43 @@ public class SpringBootCoordinator implements InvocationHandler {
 				logger.debug(ignore.getMessage());
 			}
 
-			if (failure != null && errorCode != null) {
-				XAException xaEx = new XAException(errorCode);
-				xaEx.initCause(ex);
-				throw xaEx;
-			} else {
-				XAException xaEx = new XAException(XAException.XAER_RMERR);
-				xaEx.initCause(ex);
-				throw xaEx;
-			}
-		} catch (Exception ex) {
+			XAException xaEx = (failure != null && errorCode != null) //
+					? new XAException(errorCode) : new XAException(XAException.XAER_RMERR);
+			xaEx.initCause(ex);
+			return xaEx;
+		} else {
 			XAException xaEx = new XAException(XAException.XAER_RMERR);
 			xaEx.initCause(ex);
-			throw xaEx;
+			return xaEx;
 		}
-
 	}
 
-	public Object invokeGetCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
-
-		Class<?> returnType = method.getReturnType();
-		try {
-			RestTemplate transactionRestTemplate = SpringBootBeanRegistry.getInstance().getRestTemplate();
-			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
-
-			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(this.identifier);
-
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
-			ber.append(remoteAddr.getServerHost()).append(":").append(remoteAddr.getServerPort());
-			ber.append("/org/bytesoft/bytetcc/");
-
-			ber.append(method.getName());
-			for (int i = 0; i < args.length; i++) {
-				Serializable arg = (Serializable) args[i];
-				ber.append("/").append(this.serialize(arg));
-			}
+	private String getRequestURL(Method method, Object[] args) throws IOException {
+		String baseURL = this.getBaseURL();
+		StringBuilder ber = new StringBuilder(baseURL.length() + 128);
+		ber.append(baseURL).append(method.getName());
+		for (int i = 0; args != null && i < args.length; i++) {
+			Serializable arg = (Serializable) args[i];
+			ber.append("/").append(this.serialize(arg));
+		}
+		return ber.toString();
+	}
 
-			ResponseEntity<?> response = restTemplate.getForEntity(ber.toString(), returnType, new Object[0]);
+	private String getBaseURL() {
+		String baseURL = this.baseURL;
+		if (baseURL != null) {
+			return baseURL;
+		} // end-if (baseURL != null)
 
-			return response.getBody();
-		} catch (HttpClientErrorException ex) {
-			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
-			xaEx.initCause(ex);
-			throw xaEx;
-		} catch (HttpServerErrorException ex) {
-			// int statusCode = ex.getRawStatusCode();
-			HttpHeaders headers = ex.getResponseHeaders();
-			String failureText = StringUtils.trimToNull(headers.getFirst("failure"));
-			String errorText = StringUtils.trimToNull(headers.getFirst("XA_XAER"));
-
-			Boolean failure = failureText == null ? null : Boolean.parseBoolean(failureText);
-			Integer errorCode = null;
-			try {
-				errorCode = errorText == null ? null : Integer.parseInt(errorText);
-			} catch (Exception ignore) {
-				logger.debug(ignore.getMessage());
-			}
+		RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(this.identifier);
 
-			if (failure != null && errorCode != null) {
-				XAException xaEx = new XAException(errorCode);
-				xaEx.initCause(ex);
-				throw xaEx;
-			} else {
-				XAException xaEx = new XAException(XAException.XAER_RMERR);
-				xaEx.initCause(ex);
-				throw xaEx;
-			}
-		} catch (Exception ex) {
-			XAException xaEx = new XAException(XAException.XAER_RMERR);
-			xaEx.initCause(ex);
-			throw xaEx;
-		}
+		StringBuilder ber = new StringBuilder();
+		ber.append("http://");
+		ber.append(remoteAddr.getServerHost()).append(":").append(remoteAddr.getServerPort());
+		ber.append("/org/bytesoft/bytetcc/");
 
+		this.baseURL = ber.toString();
+		return this.baseURL;
 	}
 
 	private String serialize(Serializable arg) throws IOException {
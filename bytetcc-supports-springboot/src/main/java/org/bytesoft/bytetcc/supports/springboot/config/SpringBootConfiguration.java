@@ -20,6 +20,7 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytetcc.TransactionManagerImpl;
 import org.bytesoft.bytetcc.UserCompensableImpl;
+import org.bytesoft.bytetcc.supports.http.PooledClientHttpRequestFactory;
 import org.bytesoft.bytetcc.supports.spring.SpringContextRegistry;
 import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
 import org.bytesoft.bytetcc.supports.springboot.web.CompensableHandlerInterceptor;
@@ -59,7 +60,6 @@ import com.mongodb.client.MongoClients;
 public class SpringBootConfiguration implements TransactionManagementConfigurer, WebMvcConfigurer, InitializingBean,
 		CompensableEndpointAware, EnvironmentAware, ApplicationContextAware, CompensableBeanFactoryAware {
 	static final String CONSTANT_MONGODBURI = "spring.data.mongodb.uri";
-
 	private ApplicationContext applicationContext;
 	private String identifier;
 	private Environment environment;
@@ -129,11 +129,10 @@ public class SpringBootConfiguration implements TransactionManagementConfigurer,
 		return new CompensableRequestInterceptor();
 	}
 
-	@SuppressWarnings("deprecation")
 	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
 	@org.springframework.context.annotation.Bean
 	public ClientHttpRequestFactory defaultRequestFactory() {
-		return new org.springframework.http.client.Netty4ClientHttpRequestFactory();
+		return new PooledClientHttpRequestFactory();
 	}
 
 	@org.springframework.context.annotation.Bean
@@ -23,6 +23,7 @@ import org.bytesoft.bytetcc.CompensableManagerImpl;
 import org.bytesoft.bytetcc.TransactionManagerImpl;
 import org.bytesoft.bytetcc.TransactionRecoveryImpl;
 import org.bytesoft.bytetcc.UserCompensableImpl;
+import org.bytesoft.bytetcc.supports.http.PooledClientHttpRequestFactory;
 import org.bytesoft.bytetcc.supports.spring.SpringContextRegistry;
 import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
 import org.bytesoft.bytetcc.supports.springboot.web.CompensableHandlerInterceptor;
@@ -114,11 +115,10 @@ public class SpringBootSecondaryConfiguration
 		return new CompensableRequestInterceptor();
 	}
 
-	@SuppressWarnings("deprecation")
 	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
 	@org.springframework.context.annotation.Bean
 	public ClientHttpRequestFactory defaultRequestFactory() {
-		return new org.springframework.http.client.Netty4ClientHttpRequestFactory();
+		return new PooledClientHttpRequestFactory();
 	}
 
 	@org.springframework.context.annotation.Bean
@@ -17,17 +17,16 @@ package org.bytesoft.bytetcc.supports.springboot.web;
 
 import java.io.IOException;
 import java.lang.reflect.Proxy;
-import java.util.Base64;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
 import org.bytesoft.bytetcc.CompensableTransactionImpl;
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
 import org.bytesoft.bytetcc.supports.springboot.SpringBootCoordinator;
 import org.bytesoft.common.utils.CommonUtils;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.compensable.TransactionContext;
@@ -113,8 +112,7 @@ public class CompensableRequestInterceptor
 
 		TransactionContext transactionContext = compensable.getTransactionContext();
 
-		byte[] reqByteArray = SerializeUtils.serializeObject(transactionContext);
-		String reqTransactionStr = Base64.getEncoder().encodeToString(reqByteArray);
+		String reqTransactionStr = TransactionContextCodec.encode(transactionContext);
 
 		HttpHeaders reqHeaders = httpRequest.getHeaders();
 		reqHeaders.add(HEADER_TRANCACTION_KEY, reqTransactionStr);
@@ -164,10 +162,7 @@ public class CompensableRequestInterceptor
 		}
 
 		String transactionText = StringUtils.trimToNull(respTransactionStr);
-		byte[] byteArray = StringUtils.isBlank(transactionText) ? null : Base64.getDecoder().decode(transactionText);
-		TransactionContext serverContext = byteArray == null || byteArray.length == 0 //
-				? null
-				: (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+		TransactionContext serverContext = TransactionContextCodec.decode(transactionText);
 
 		TransactionResponseImpl txResp = new TransactionResponseImpl();
 		txResp.setTransactionContext(serverContext);
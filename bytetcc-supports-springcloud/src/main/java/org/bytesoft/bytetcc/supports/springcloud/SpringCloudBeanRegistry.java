@@ -15,7 +15,10 @@
  */
 package org.bytesoft.bytetcc.supports.springcloud;
 
-import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
@@ -42,6 +45,7 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 	private ThreadLocal<CompensableLoadBalancerInterceptor> interceptors = new ThreadLocal<CompensableLoadBalancerInterceptor>();
 	private Environment environment;
 	private transient boolean statefully;
+	private final Map<String, RemoteCoordinator> coordinators = new ConcurrentHashMap<String, RemoteCoordinator>();
 
 	private SpringCloudBeanRegistry() {
 		if (instance != null) {
@@ -67,20 +71,43 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 			return null;
 		}
 
+		RemoteCoordinator participant = this.coordinators.get(identifier);
+		if (participant != null) {
+			return participant;
+		}
+
 		RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 		RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
 
-		SpringCloudCoordinator handler = new SpringCloudCoordinator();
-		handler.setStatefully(this.statefully);
-		handler.setIdentifier(identifier);
-		handler.setEnvironment(this.environment);
+		SpringCloudCoordinator coordinator = new SpringCloudCoordinator();
+		coordinator.setStatefully(this.statefully);
+		coordinator.setIdentifier(identifier);
+		coordinator.setEnvironment(this.environment);
 
-		RemoteCoordinator participant = (RemoteCoordinator) Proxy.newProxyInstance(
-				SpringCloudCoordinator.class.getClassLoader(), new Class[] { RemoteCoordinator.class }, handler);
+		RemoteCoordinator existed = this.coordinators.putIfAbsent(identifier, coordinator);
+		if (existed != null) {
+			return existed;
+		}
 
 		registry.putRemoteNode(remoteAddr, remoteNode);
 
-		return participant;
+		return coordinator;
+	}
+
+	/**
+	 * Evicts the cached coordinators whose instance (host:port) is no longer registered in the discovery.
+	 */
+	public void evictConsumeCoordinators(Set<String> instances) {
+		for (Iterator<Map.Entry<String, RemoteCoordinator>> itr = this.coordinators.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, RemoteCoordinator> entry = itr.next();
+			RemoteNode remoteNode = CommonUtils.getRemoteNode(entry.getKey());
+			String instance = remoteNode == null ? null
+					: String.format("%s:%s", remoteNode.getServerHost(), remoteNode.getServerPort());
+			if (instance == null || instances.contains(instance) == false) {
+				itr.remove();
+				logger.info("Remote coordinator(identifier= {}) is evicted as it has left the discovery.", entry.getKey());
+			}
+		}
 	}
 
 	public RemoteCoordinator getConsumeCoordinatorStateless(String identifier) {
@@ -98,13 +125,11 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 		RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 		RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
 
-		SpringCloudCoordinator handler = new SpringCloudCoordinator();
-		handler.setStatefully(this.statefully);
-		handler.setIdentifier(identifier);
-		handler.setEnvironment(this.environment);
-
-		participant = (RemoteCoordinator) Proxy.newProxyInstance(SpringCloudCoordinator.class.getClassLoader(),
-				new Class[] { RemoteCoordinator.class }, handler);
+		SpringCloudCoordinator coordinator = new SpringCloudCoordinator();
+		coordinator.setStatefully(this.statefully);
+		coordinator.setIdentifier(identifier);
+		coordinator.setEnvironment(this.environment);
+		participant = coordinator;
 
 		registry.putRemoteNode(remoteAddr, remoteNode);
 		registry.putParticipant(application, participant);
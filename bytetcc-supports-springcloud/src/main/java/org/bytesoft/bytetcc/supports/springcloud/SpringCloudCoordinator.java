@@ -17,8 +17,6 @@ package org.bytesoft.bytetcc.supports.springcloud;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -28,7 +26,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.common.utils.SerializeUtils;
-import org.bytesoft.transaction.TransactionParticipant;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
@@ -36,175 +35,118 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
-public class SpringCloudCoordinator implements InvocationHandler {
+public class SpringCloudCoordinator implements RemoteCoordinator {
 	static final Logger logger = LoggerFactory.getLogger(SpringCloudCoordinator.class);
 	static final String CONSTANT_CONTENT_PATH = "org.bytesoft.bytetcc.contextpath";
 
 	private String identifier;
 	private Environment environment;
+	private transient String baseURL;
 	private boolean statefully;
 
-	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-		Class<?> clazz = method.getDeclaringClass();
-		String methodName = method.getName();
-		Class<?> returnType = method.getReturnType();
-		if (Object.class.equals(clazz)) {
-			return method.invoke(this, args);
-		} else if (TransactionParticipant.class.equals(clazz)) {
-			throw new XAException(XAException.XAER_RMFAIL);
-		} else if (RemoteCoordinator.class.equals(clazz)) {
-			if ("getIdentifier".equals(methodName)) {
-				return this.identifier;
-			} else if ("getApplication".equals(methodName)) {
-				int firstIndex = this.identifier.indexOf(":");
-				int lastIndex = this.identifier.lastIndexOf(":");
-				return firstIndex <= 0 || lastIndex <= 0 || firstIndex > lastIndex //
-						? null : this.identifier.subSequence(firstIndex + 1, lastIndex);
-			} else if ("getRemoteAddr".equals(methodName) && RemoteAddr.class.equals(returnType)) {
-				return this.identifier == null ? null : CommonUtils.getRemoteAddr(this.identifier);
-			} else if ("getRemoteNode".equals(methodName) && RemoteNode.class.equals(returnType)) {
-				return this.identifier == null ? null : CommonUtils.getRemoteNode(this.identifier);
-			} else {
-				throw new XAException(XAException.XAER_RMFAIL);
-			}
-		} else if (XAResource.class.equals(clazz)) {
-			if ("start".equals(methodName)) {
-				return null; // return immediately
-			} else if ("prepare".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
-			} else if ("commit".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
-			} else if ("rollback".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
-			} else if ("recover".equals(methodName)) {
-				return this.invokeGetCoordinator(proxy, method, args);
-			} else if ("forget".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
-			} else {
-				throw new XAException(XAException.XAER_RMFAIL);
-			}
-		} else {
-			throw new IllegalAccessException();
-		}
+	public String getApplication() {
+		int firstIndex = this.identifier == null ? -1 : this.identifier.indexOf(":");
+		int lastIndex = this.identifier == null ? -1 : this.identifier.lastIndexOf(":");
+		return firstIndex <= 0 || lastIndex <= 0 || firstIndex > lastIndex //
+				? null : this.identifier.substring(firstIndex + 1, lastIndex);
 	}
 
-	public Object invokePostCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
+	public RemoteAddr getRemoteAddr() {
+		return this.identifier == null ? null : CommonUtils.getRemoteAddr(this.identifier);
+	}
 
-		Class<?> returnType = method.getReturnType();
-		try {
-			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
-			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
+	public RemoteNode getRemoteNode() {
+		return this.identifier == null ? null : CommonUtils.getRemoteNode(this.identifier);
+	}
 
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+	public Transaction start(TransactionContext transactionContext, int flags) throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
 
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
+	public Transaction end(TransactionContext transactionContext, int flags) throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
 
-			if (this.statefully) {
-				ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
-			} else {
-				ber.append(remoteNode.getServiceKey());
-			}
+	public void start(Xid xid, int flags) throws XAException {
+		// return immediately
+	}
 
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+	public void end(Xid xid, int flags) throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
 
-			ber.append("/org/bytesoft/bytetcc/");
-			ber.append(method.getName());
-			for (int i = 0; i < args.length; i++) {
-				Serializable arg = (Serializable) args[i];
-				ber.append("/").append(this.serialize(arg));
-			}
+	public int prepare(Xid xid) throws XAException {
+		Object result = this.invokeCoordinator("prepare", Integer.TYPE, HttpMethod.POST, xid);
+		if (result == null) {
+			throw new XAException(XAException.XAER_RMERR);
+		}
+		return ((Number) result).intValue();
+	}
 
-			ResponseEntity<?> response = restTemplate.postForEntity(ber.toString(), null, returnType, new Object[0]);
+	public void commit(Xid xid, boolean onePhase) throws XAException {
+		this.invokeCoordinator("commit", Void.TYPE, HttpMethod.POST, xid, onePhase);
+	}
 
-			return response.getBody();
-		} catch (HttpClientErrorException ex) {
-			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
-			xaEx.initCause(ex);
-			throw xaEx;
-		} catch (HttpServerErrorException ex) {
-			// int statusCode = ex.getRawStatusCode();
-			HttpHeaders headers = ex.getResponseHeaders();
-			String failureText = StringUtils.trimToNull(headers.getFirst("failure"));
-			String errorText = StringUtils.trimToNull(headers.getFirst("XA_XAER"));
+	public void rollback(Xid xid) throws XAException {
+		this.invokeCoordinator("rollback", Void.TYPE, HttpMethod.POST, xid);
+	}
 
-			Boolean failure = failureText == null ? null : Boolean.parseBoolean(failureText);
-			Integer errorCode = null;
-			try {
-				errorCode = errorText == null ? null : Integer.parseInt(errorText);
-			} catch (Exception ignore) {
-				logger.debug(ignore.getMessage());
-			}
+	public Xid[] recover(int flag) throws XAException {
+		return (Xid[]) this.invokeCoordinator("recover", Xid[].class, HttpMethod.GET, flag);
+	}
 
-			if (failure != null && errorCode != null) {
-				XAException xaEx = new XAException(errorCode);
-				xaEx.initCause(ex);
-				throw xaEx;
-			} else {
-				XAException xaEx = new XAException(XAException.XAER_RMERR);
-				xaEx.initCause(ex);
-				throw xaEx;
-			}
-		} catch (Exception ex) {
-			XAException xaEx = new XAException(XAException.XAER_RMERR);
-			xaEx.initCause(ex);
-			throw xaEx;
-		}
+	public void forget(Xid xid) throws XAException {
+		this.invokeCoordinator("forget", Void.TYPE, HttpMethod.POST, xid);
+	}
 
+	public void forgetQuietly(Xid xid) {
+		logger.debug("{}| forgetQuietly is not supported by remote coordinator {}.",
+				ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), this.identifier);
 	}
 
-	public Object invokeGetCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
+	public boolean isSameRM(XAResource xares) throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
 
-		Class<?> returnType = method.getReturnType();
+	public int getTransactionTimeout() throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
+
+	public boolean setTransactionTimeout(int seconds) throws XAException {
+		throw new XAException(XAException.XAER_RMFAIL);
+	}
+
+	private Object invokeCoordinator(String methodName, Class<?> returnType, HttpMethod httpMethod, Object... args)
+			throws XAException {
 		try {
 			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
 			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
 
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
-
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
-
-			if (this.statefully) {
-				ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
-			} else {
-				ber.append(remoteNode.getServiceKey());
-			}
-
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
-
-			ber.append("/org/bytesoft/bytetcc/");
-			ber.append(method.getName());
-			for (int i = 0; i < args.length; i++) {
-				Serializable arg = (Serializable) args[i];
-				ber.append("/").append(this.serialize(arg));
-			}
-
-			ResponseEntity<?> response = restTemplate.getForEntity(ber.toString(), returnType, new Object[0]);
+			String requestURL = this.getRequestURL(methodName, args);
+			ResponseEntity<?> response = HttpMethod.GET.equals(httpMethod) //
+					? restTemplate.getForEntity(requestURL, returnType, new Object[0])
+					: restTemplate.postForEntity(requestURL, null, returnType, new Object[0]);
 
 			return response.getBody();
-		} catch (HttpClientErrorException ex) {
+		} catch (Exception ex) {
+			throw this.convertException(ex);
+		}
+	}
+
+	private XAException convertException(Throwable ex) {
+		if (HttpClientErrorException.class.isInstance(ex)) {
 			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
 			xaEx.initCause(ex);
-			throw xaEx;
-		} catch (HttpServerErrorException ex) {
+			return xaEx;
+		} else if (HttpServerErrorException.class.isInstance(ex)) {
 			// int statusCode = ex.getRawStatusCode();
-			HttpHeaders headers = ex.getResponseHeaders();
+			HttpHeaders headers = ((HttpServerErrorException) ex).getResponseHeaders();
 			String failureText = StringUtils.trimToNull(headers.getFirst("failure"));
 			String errorText = StringUtils.trimToNull(headers.getFirst("XA_XAER"));
 
@@ -216,21 +158,56 @@ public class SpringCloudCoordinator implements InvocationHandler {
 				logger.debug(ignore.getMessage());
 			}
 
-			if (failure != null && errorCode != null) {
-				XAException xaEx = new XAException(errorCode);
-				xaEx.initCause(ex);
-				throw xaEx;
-			} else {
-				XAException xaEx = new XAException(XAException.XAER_RMERR);
-				xaEx.initCause(ex);
-				throw xaEx;
-			}
-		} catch (Exception ex) {
+			XAException xaEx = (failure != null && errorCode != null) //
+					? new XAException(errorCode) : new XAException(XAException.XAER_RMERR);
+			xaEx.initCause(ex);
+			return xaEx;
+		} else {
 			XAException xaEx = new XAException(XAException.XAER_RMERR);
 			xaEx.initCause(ex);
-			throw xaEx;
+			return xaEx;
 		}
+	}
+
+	private String getRequestURL(String methodName, Object[] args) throws IOException {
+		String baseURL = this.getBaseURL();
+		StringBuilder ber = new StringBuilder(baseURL.length() + 128);
+		ber.append(baseURL).append(methodName);
+		for (int i = 0; args != null && i < args.length; i++) {
+			Serializable arg = (Serializable) args[i];
+			ber.append("/").append(this.serialize(arg));
+		}
+		return ber.toString();
+	}
+
+	private String getBaseURL() {
+		String baseURL = this.baseURL;
+		if (baseURL != null) {
+			return baseURL;
+		} // end-if (baseURL != null)
+
+		RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
+		String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
+		String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
+				? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+
+		StringBuilder ber = new StringBuilder();
+		ber.append("http://");
+
+		if (this.statefully) {
+			ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
+		} else {
+			ber.append(remoteNode.getServiceKey());
+		}
+
+		if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
+			ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
+		} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+
+		ber.append("/org/bytesoft/bytetcc/");
 
+		this.baseURL = ber.toString();
+		return this.baseURL;
 	}
 
 	private String serialize(Serializable arg) throws IOException {
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.discovery.event.HeartbeatMonitor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+
+public class SpringCloudDiscoveryListener implements ApplicationListener<HeartbeatEvent>, ApplicationContextAware {
+	static final Logger logger = LoggerFactory.getLogger(SpringCloudDiscoveryListener.class);
+
+	private ApplicationContext applicationContext;
+	private final HeartbeatMonitor monitor = new HeartbeatMonitor();
+
+	public void onApplicationEvent(HeartbeatEvent event) {
+		if (this.monitor.update(event.getValue()) == false) {
+			return;
+		} // end-if (this.monitor.update(event.getValue()) == false)
+
+		DiscoveryClient discoveryClient = null;
+		try {
+			discoveryClient = this.applicationContext.getBean(DiscoveryClient.class);
+		} catch (BeansException ex) {
+			logger.debug("No discovery client is available, the cached remote coordinators are kept.", ex);
+			return;
+		}
+
+		Set<String> instances = new HashSet<String>();
+		try {
+			List<String> services = discoveryClient.getServices();
+			for (int i = 0; services != null && i < services.size(); i++) {
+				List<ServiceInstance> instanceList = discoveryClient.getInstances(services.get(i));
+				for (int j = 0; instanceList != null && j < instanceList.size(); j++) {
+					ServiceInstance instance = instanceList.get(j);
+					instances.add(String.format("%s:%s", instance.getHost(), instance.getPort()));
+				}
+			}
+		} catch (RuntimeException ex) {
+			logger.warn("Error occurred while listing the registered instances!", ex);
+			return;
+		}
+
+		SpringCloudBeanRegistry.getInstance().evictConsumeCoordinators(instances);
+	}
+
+	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+		this.applicationContext = applicationContext;
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytetcc.TransactionManagerImpl;
 import org.bytesoft.bytetcc.UserCompensableImpl;
+import org.bytesoft.bytetcc.supports.http.PooledClientHttpRequestFactory;
 import org.bytesoft.bytetcc.supports.spring.SpringContextRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.feign.CompensableClientRegistry;
@@ -88,7 +89,6 @@ public class SpringCloudConfiguration implements TransactionManagementConfigurer
 	static final String FEIGN_FACTORY_CLASS = "org.springframework.cloud.openfeign.FeignClientFactoryBean";
 
 	static final String CONSTANT_MONGODBURI = "spring.data.mongodb.uri";
-
 	private ApplicationContext applicationContext;
 	private String identifier;
 	private Environment environment;
@@ -222,11 +222,10 @@ public class SpringCloudConfiguration implements TransactionManagementConfigurer
 		return interceptor;
 	}
 
-	@SuppressWarnings("deprecation")
 	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
 	@org.springframework.context.annotation.Bean
 	public ClientHttpRequestFactory defaultRequestFactory() {
-		return new org.springframework.http.client.Netty4ClientHttpRequestFactory();
+		return new PooledClientHttpRequestFactory();
 	}
 
 	@org.springframework.context.annotation.Bean("compensableRestTemplate")
@@ -26,6 +26,7 @@ import org.bytesoft.bytetcc.CompensableManagerImpl;
 import org.bytesoft.bytetcc.TransactionManagerImpl;
 import org.bytesoft.bytetcc.TransactionRecoveryImpl;
 import org.bytesoft.bytetcc.UserCompensableImpl;
+import org.bytesoft.bytetcc.supports.http.PooledClientHttpRequestFactory;
 import org.bytesoft.bytetcc.supports.spring.SpringContextRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.feign.CompensableClientRegistry;
@@ -85,7 +86,6 @@ public class SpringCloudSecondaryConfiguration implements TransactionManagementC
 	static final String CONSTANT_INCLUSIONS = "org.bytesoft.bytetcc.feign.inclusions";
 	static final String CONSTANT_EXCLUSIONS = "org.bytesoft.bytetcc.feign.exclusions";
 	static final String FEIGN_FACTORY_CLASS = "org.springframework.cloud.openfeign.FeignClientFactoryBean";
-
 	private ApplicationContext applicationContext;
 	private String identifier;
 	private Environment environment;
@@ -212,11 +212,10 @@ public class SpringCloudSecondaryConfiguration implements TransactionManagementC
 		return interceptor;
 	}
 
-	@SuppressWarnings("deprecation")
 	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
 	@org.springframework.context.annotation.Bean
 	public ClientHttpRequestFactory defaultRequestFactory() {
-		return new org.springframework.http.client.Netty4ClientHttpRequestFactory();
+		return new PooledClientHttpRequestFactory();
 	}
 
 	@org.springframework.context.annotation.Bean("compensableRestTemplate")
@@ -16,12 +16,11 @@
 package org.bytesoft.bytetcc.supports.springcloud.feign;
 
 import java.io.IOException;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.Map;
 
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.compensable.CompensableTransaction;
@@ -50,9 +49,7 @@ public class CompensableFeignInterceptor
 
 		try {
 			TransactionContext transactionContext = compensable.getTransactionContext();
-			byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
-
-			String transactionText = Base64.getEncoder().encodeToString(byteArray);
+			String transactionText = TransactionContextCodec.encode(transactionContext);
 
 			Map<String, Collection<String>> headers = template.headers();
 			if (headers.containsKey(HEADER_TRANCACTION_KEY) == false) {
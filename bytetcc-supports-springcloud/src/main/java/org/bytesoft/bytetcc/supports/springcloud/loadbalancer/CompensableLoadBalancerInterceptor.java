@@ -16,6 +16,7 @@
 package org.bytesoft.bytetcc.supports.springcloud.loadbalancer;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -115,30 +116,54 @@ public abstract class CompensableLoadBalancerInterceptor {
 		return readyServerList.isEmpty() ? unReadyServerList : readyServerList;
 	}
 
-	public abstract void afterCompletion(Server server);
+	public List<Server> beforeCompletion(List<Server> servers, CompensableServerIndex serverIndex) {
+		if (this.stateful == false || serverIndex == null) {
+			return this.beforeCompletion(servers);
+		} // end-if (this.stateful == false || serverIndex == null)
 
-	public String getInstanceId(Server server) {
-		String instanceId = null;
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		CompensableTransactionImpl compensable = //
+				(CompensableTransactionImpl) compensableManager.getCompensableTransactionQuietly();
+
+		for (Iterator<String> itr = serverIndex.getApplications().iterator(); itr.hasNext();) {
+			String application = itr.next();
+			XAResourceDescriptor descriptor = compensable.getRemoteCoordinator(application);
+			if (descriptor == null) {
+				continue;
+			} // end-if (descriptor == null)
+
+			Server server = serverIndex.getServer(descriptor.getIdentifier());
+			List<Server> serverList = new ArrayList<Server>(1);
+			if (server != null) {
+				serverList.add(server);
+			} // end-if (server != null)
+			return serverList;
+		}
+
+		final List<Server> readyServerList = new ArrayList<Server>();
+		final List<Server> unReadyServerList = new ArrayList<Server>();
+		for (int i = 0; servers != null && i < servers.size(); i++) {
+			Server server = servers.get(i);
+			if (server.isReadyToServe()) {
+				readyServerList.add(server);
+			} else {
+				unReadyServerList.add(server);
+			}
+		}
 
-		if (DiscoveryEnabledServer.class.isInstance(server)) {
-			DiscoveryEnabledServer discoveryEnabledServer = (DiscoveryEnabledServer) server;
-			InstanceInfo instanceInfo = discoveryEnabledServer.getInstanceInfo();
-			String addr = instanceInfo.getIPAddr();
-			String appName = instanceInfo.getAppName();
-			int port = instanceInfo.getPort();
+		return readyServerList.isEmpty() ? unReadyServerList : readyServerList;
+	}
 
-			instanceId = String.format("%s:%s:%s", addr, appName, port);
-		} else {
-			MetaInfo metaInfo = server.getMetaInfo();
+	public abstract void afterCompletion(Server server);
 
-			String host = server.getHost();
-			String addr = host.matches("\\d+(\\.\\d+){3}") ? host : CommonUtils.getInetAddress(host);
-			String appName = metaInfo.getAppName();
-			int port = server.getPort();
-			instanceId = String.format("%s:%s:%s", addr, appName, port);
-		}
+	public String getInstanceId(Server server) {
+		return CompensableServerIndex.getInstanceId(server);
+	}
 
-		return instanceId;
+	public boolean isStateful() {
+		return this.stateful;
 	}
 
 }
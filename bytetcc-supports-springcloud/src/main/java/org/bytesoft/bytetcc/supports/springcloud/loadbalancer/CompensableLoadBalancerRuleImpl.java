@@ -27,9 +27,11 @@ import org.springframework.core.env.Environment;
 
 import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.BaseLoadBalancer;
 import com.netflix.loadbalancer.ILoadBalancer;
 import com.netflix.loadbalancer.IRule;
 import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerListChangeListener;
 
 public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule implements IRule {
 	static final String CONSTANT_RULE_KEY = "org.bytesoft.bytetcc.NFCompensableRuleClassName";
@@ -38,11 +40,88 @@ public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule im
 	static Class<?> compensableRuleClass;
 
 	private IClientConfig clientConfig;
+	private volatile CompensableRule compensableRule;
+	private volatile CompensableServerIndex serverIndex;
+	private volatile ILoadBalancer indexedLoadBalancer;
 
 	public Server choose(Object key) {
 		SpringCloudBeanRegistry registry = SpringCloudBeanRegistry.getInstance();
 		CompensableLoadBalancerInterceptor interceptor = registry.getLoadBalancerInterceptor();
 
+		CompensableRule compensableRule = this.getCompensableRule();
+		if (interceptor == null) {
+			return compensableRule.chooseServer(key); // return this.chooseServer(key);
+		} // end-if (interceptor == null)
+
+		ILoadBalancer loadBalancer = this.getLoadBalancer();
+		List<Server> servers = loadBalancer.getAllServers();
+
+		Server server = null;
+		try {
+			CompensableServerIndex serverIndex = interceptor.isStateful() ? this.getServerIndex(loadBalancer, servers)
+					: null;
+			List<Server> serverList = interceptor.beforeCompletion(servers, serverIndex);
+
+			server = compensableRule.chooseServer(key, serverList); // this.chooseServer(key, serverList);
+		} finally {
+			interceptor.afterCompletion(server);
+		}
+
+		return server;
+	}
+
+	/**
+	 * The index of a BaseLoadBalancer is dropped by its server list listener and rebuilt at the next choose, other
+	 * load balancers are checked against the server list.
+	 */
+	private CompensableServerIndex getServerIndex(ILoadBalancer loadBalancer, List<Server> servers) {
+		if (BaseLoadBalancer.class.isInstance(loadBalancer) == false) {
+			CompensableServerIndex serverIndex = this.serverIndex;
+			if (serverIndex == null || serverIndex.matches(servers) == false) {
+				serverIndex = new CompensableServerIndex(servers);
+				this.serverIndex = serverIndex;
+			} // end-if (serverIndex == null || serverIndex.matches(servers) == false)
+			return serverIndex;
+		} // end-if (BaseLoadBalancer.class.isInstance(loadBalancer) == false)
+
+		CompensableServerIndex serverIndex = this.serverIndex;
+		if (serverIndex != null && this.indexedLoadBalancer == loadBalancer) {
+			return serverIndex;
+		} // end-if (serverIndex != null && this.indexedLoadBalancer == loadBalancer)
+
+		synchronized (this) {
+			if (this.indexedLoadBalancer != loadBalancer) {
+				((BaseLoadBalancer) loadBalancer).addServerListChangeListener(new ServerListChangeListener() {
+					public void serverListChanged(List<Server> oldList, List<Server> newList) {
+						invalidateServerIndex();
+					}
+				});
+				this.serverIndex = null;
+				this.indexedLoadBalancer = loadBalancer;
+			} // end-if (this.indexedLoadBalancer != loadBalancer)
+
+			if (this.serverIndex == null) {
+				this.serverIndex = new CompensableServerIndex(loadBalancer.getAllServers());
+			} // end-if (this.serverIndex == null)
+			return this.serverIndex;
+		} // end-synchronized (this)
+	}
+
+	private synchronized void invalidateServerIndex() {
+		this.serverIndex = null;
+	}
+
+	private CompensableRule getCompensableRule() {
+		ILoadBalancer loadBalancer = this.getLoadBalancer();
+		CompensableRule compensableRule = this.compensableRule;
+		if (compensableRule != null) {
+			if (compensableRule.getLoadBalancer() != loadBalancer) {
+				compensableRule.setLoadBalancer(loadBalancer);
+			} // end-if (compensableRule.getLoadBalancer() != loadBalancer)
+			return compensableRule;
+		} // end-if (compensableRule != null)
+
+		SpringCloudBeanRegistry registry = SpringCloudBeanRegistry.getInstance();
 		if (compensableRuleClass == null) {
 			Environment environment = registry.getEnvironment();
 			String clazzName = environment.getProperty(CONSTANT_RULE_KEY);
@@ -59,7 +138,6 @@ public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule im
 			}
 		}
 
-		CompensableRule compensableRule = null;
 		if (CompensableRuleImpl.class.equals(compensableRuleClass)) {
 			compensableRule = new CompensableRuleImpl();
 		} else {
@@ -71,29 +149,15 @@ public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule im
 			}
 		}
 		compensableRule.initWithNiwsConfig(this.clientConfig);
-		compensableRule.setLoadBalancer(this.getLoadBalancer());
-
-		if (interceptor == null) {
-			return compensableRule.chooseServer(key); // return this.chooseServer(key);
-		} // end-if (interceptor == null)
-
-		ILoadBalancer loadBalancer = this.getLoadBalancer();
-		List<Server> servers = loadBalancer.getAllServers();
-
-		Server server = null;
-		try {
-			List<Server> serverList = interceptor.beforeCompletion(servers);
-
-			server = compensableRule.chooseServer(key, serverList); // this.chooseServer(key, serverList);
-		} finally {
-			interceptor.afterCompletion(server);
-		}
+		compensableRule.setLoadBalancer(loadBalancer);
 
-		return server;
+		this.compensableRule = compensableRule;
+		return compensableRule;
 	}
 
 	public void initWithNiwsConfig(IClientConfig clientConfig) {
 		this.clientConfig = clientConfig;
+		this.compensableRule = null;
 	}
 
 	public IClientConfig getClientConfig() {
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bytesoft.common.utils.CommonUtils;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.Server.MetaInfo;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+
+/**
+ * Immutable index of a ribbon server list: instance identifier (addr:application:port) to server, built once per
+ * server list so that choosing the server of an enlisted participant is a lookup instead of a scan.
+ */
+public final class CompensableServerIndex {
+	private final List<Server> servers;
+	private final Map<String, Server> instances;
+	private final Set<String> applications;
+
+	public CompensableServerIndex(List<Server> servers) {
+		List<Server> serverList = servers == null ? new ArrayList<Server>() : new ArrayList<Server>(servers);
+		Map<String, Server> instanceMap = new HashMap<String, Server>();
+		Set<String> applicationSet = new LinkedHashSet<String>();
+		for (int i = 0; i < serverList.size(); i++) {
+			Server server = serverList.get(i);
+			String instanceId = getInstanceId(server);
+			instanceMap.put(instanceId, server);
+			applicationSet.add(CommonUtils.getApplication(instanceId));
+		}
+		this.servers = Collections.unmodifiableList(serverList);
+		this.instances = Collections.unmodifiableMap(instanceMap);
+		this.applications = Collections.unmodifiableSet(applicationSet);
+	}
+
+	public boolean matches(List<Server> servers) {
+		return servers == null ? this.servers.isEmpty() : this.servers.equals(servers);
+	}
+
+	public Server getServer(String instanceId) {
+		return instanceId == null ? null : this.instances.get(instanceId);
+	}
+
+	public Set<String> getApplications() {
+		return this.applications;
+	}
+
+	public List<Server> getServers() {
+		return this.servers;
+	}
+
+	public static String getInstanceId(Server server) {
+		if (DiscoveryEnabledServer.class.isInstance(server)) {
+			DiscoveryEnabledServer discoveryEnabledServer = (DiscoveryEnabledServer) server;
+			InstanceInfo instanceInfo = discoveryEnabledServer.getInstanceInfo();
+			String addr = instanceInfo.getIPAddr();
+			String appName = instanceInfo.getAppName();
+			int port = instanceInfo.getPort();
+			return String.format("%s:%s:%s", addr, appName, port);
+		} else {
+			MetaInfo metaInfo = server.getMetaInfo();
+			String host = server.getHost();
+			String addr = host.matches("\\d+(\\.\\d+){3}") ? host : CommonUtils.getInetAddress(host);
+			String appName = metaInfo.getAppName();
+			int port = server.getPort();
+			return String.format("%s:%s:%s", addr, appName, port);
+		}
+	}
+
+}
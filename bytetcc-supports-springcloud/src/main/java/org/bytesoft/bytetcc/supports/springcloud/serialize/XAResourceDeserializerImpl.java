@@ -15,7 +15,6 @@
  */
 package org.bytesoft.bytetcc.supports.springcloud.serialize;
 
-import java.lang.reflect.Proxy;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,9 +63,7 @@ public class XAResourceDeserializerImpl implements XAResourceDeserializer, Appli
 			springCloudCoordinator.setIdentifier(identifier);
 			springCloudCoordinator.setEnvironment(this.environment);
 			springCloudCoordinator.setStatefully(this.statefully);
-			RemoteCoordinator participant = (RemoteCoordinator) Proxy.newProxyInstance(
-					SpringCloudCoordinator.class.getClassLoader(), new Class[] { RemoteCoordinator.class },
-					springCloudCoordinator);
+			RemoteCoordinator participant = springCloudCoordinator;
 
 			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 			RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
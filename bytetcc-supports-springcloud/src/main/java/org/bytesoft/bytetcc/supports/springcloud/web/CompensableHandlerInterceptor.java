@@ -16,18 +16,19 @@
 package org.bytesoft.bytetcc.supports.springcloud.web;
 
 import java.lang.reflect.Method;
-import java.util.Base64;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytetcc.supports.http.CompensableCallableInterceptor;
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.controller.CompensableCoordinatorController;
 import org.bytesoft.common.utils.CommonUtils;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.Compensable;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
@@ -42,21 +43,27 @@ import org.springframework.boot.web.servlet.error.ErrorController;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
-public class CompensableHandlerInterceptor implements HandlerInterceptor, CompensableEndpointAware, ApplicationContextAware {
+public class CompensableHandlerInterceptor implements AsyncHandlerInterceptor, CompensableEndpointAware, ApplicationContextAware {
 	static final Logger logger = LoggerFactory.getLogger(CompensableHandlerInterceptor.class);
 
 	static final String HEADER_TRANCACTION_KEY = "X-BYTETCC-TRANSACTION"; // org.bytesoft.bytetcc.transaction
 	static final String HEADER_PROPAGATION_KEY = "X-BYTETCC-PROPAGATION"; // org.bytesoft.bytetcc.propagation
 	static final String HEADER_RECURSIVELY_KEY = "X-BYTETCC-RECURSIVELY"; // org.bytesoft.bytetcc.recursively
+	static final String REQUEST_TRANSACTION_KEY = CompensableTransaction.class.getName();
 
 	private String identifier;
 	private ApplicationContext applicationContext;
 
 	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		if (DispatcherType.ASYNC.equals(request.getDispatcherType())) {
+			return this.preHandleAsyncDispatch(request);
+		}
+
 		String transactionStr = request.getHeader(HEADER_TRANCACTION_KEY);
 		if (StringUtils.isBlank(transactionStr)) {
 			return true;
@@ -96,11 +103,8 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
 		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
 
-		byte[] byteArray = transactionText == null ? new byte[0] : Base64.getDecoder().decode(transactionText);
-
-		TransactionContext transactionContext = null;
-		if (byteArray != null && byteArray.length > 0) {
-			transactionContext = (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+		TransactionContext transactionContext = TransactionContextCodec.decode(transactionText);
+		if (transactionContext != null) {
 			transactionContext.setPropagated(true);
 			transactionContext.setPropagatedBy(propagationText);
 		}
@@ -115,8 +119,8 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
 		String propagatedBy = (String) compensable.getTransactionContext().getPropagatedBy();
 
-		byte[] responseByteArray = SerializeUtils.serializeObject(compensable.getTransactionContext());
-		String compensableStr = Base64.getEncoder().encodeToString(responseByteArray);
+		String compensableStr = TransactionContextCodec.encode(compensable.getTransactionContext(),
+				TransactionContextCodec.isLegacy(transactionText));
 		response.setHeader(HEADER_TRANCACTION_KEY, compensableStr);
 		response.setHeader(HEADER_PROPAGATION_KEY, this.identifier);
 
@@ -127,6 +131,29 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 					String.valueOf(StringUtils.equalsIgnoreCase(sourceApplication, targetApplication) == false));
 		}
 
+		request.setAttribute(REQUEST_TRANSACTION_KEY, compensable);
+		WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(REQUEST_TRANSACTION_KEY,
+				new CompensableCallableInterceptor(compensableManager, compensable));
+
+		return true;
+	}
+
+	private boolean preHandleAsyncDispatch(HttpServletRequest request) {
+		CompensableTransaction compensable = (CompensableTransaction) request.getAttribute(REQUEST_TRANSACTION_KEY);
+		if (compensable == null) {
+			return true;
+		}
+
+		CompensableBeanFactory beanFactory = SpringCloudBeanRegistry.getInstance().getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		CompensableTransaction current = compensableManager.getCompensableTransactionQuietly();
+		if (current == null) {
+			compensableManager.attachThread(compensable);
+		} else if (current != compensable) {
+			logger.warn("The async dispatch thread has been associated with another compensable transaction(uri= {}).",
+					request.getRequestURI());
+		}
+
 		return true;
 	}
 
@@ -134,6 +161,20 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 			throws Exception {
 	}
 
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		CompensableTransaction compensable = (CompensableTransaction) request.getAttribute(REQUEST_TRANSACTION_KEY);
+		if (compensable == null) {
+			return;
+		}
+
+		CompensableBeanFactory beanFactory = SpringCloudBeanRegistry.getInstance().getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		if (compensableManager.getCompensableTransactionQuietly() == compensable) {
+			compensableManager.detachThread();
+		} // end-if (compensableManager.getCompensableTransactionQuietly() == compensable)
+	}
+
 	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
 			throws Exception {
 		String transactionStr = request.getHeader(HEADER_TRANCACTION_KEY);
@@ -179,6 +220,8 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 		resp.setTransactionContext(transactionContext);
 		resp.setSourceTransactionCoordinator(beanRegistry.getConsumeCoordinator(null));
 
+		request.removeAttribute(REQUEST_TRANSACTION_KEY);
+
 		transactionInterceptor.beforeSendResponse(resp);
 
 	}
@@ -16,15 +16,14 @@
 package org.bytesoft.bytetcc.supports.springcloud.web;
 
 import java.io.IOException;
-import java.util.Base64;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
 import org.bytesoft.bytetcc.CompensableTransactionImpl;
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytetcc.supports.springcloud.loadbalancer.CompensableLoadBalancerInterceptor;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.compensable.TransactionContext;
@@ -58,6 +57,9 @@ public class CompensableRequestInterceptor
 	private ApplicationContext applicationContext;
 	private volatile boolean statefully;
 
+	private final ThreadLocal<HttpRequest> requests = new ThreadLocal<HttpRequest>();
+	private volatile CompensableLoadBalancerInterceptor loadBalancerInterceptor;
+
 	public ClientHttpResponse intercept(final HttpRequest httpRequest, byte[] body, ClientHttpRequestExecution execution)
 			throws IOException {
 
@@ -80,24 +82,8 @@ public class CompensableRequestInterceptor
 			return execution.execute(httpRequest, body);
 		}
 
-		beanRegistry.setLoadBalancerInterceptor(new CompensableLoadBalancerInterceptor(this.statefully) {
-			public void afterCompletion(Server server) {
-				if (server == null) {
-					logger.warn(
-							"There is no suitable server, the TransactionInterceptor.beforeSendRequest() operation is not executed!");
-					return;
-				}
-
-				try {
-					String instanceId = this.getInstanceId(server);
-
-					invokeBeforeSendRequest(httpRequest, instanceId);
-				} catch (IOException ex) {
-					throw new RuntimeException(ex);
-				}
-
-			}
-		});
+		this.requests.set(httpRequest);
+		beanRegistry.setLoadBalancerInterceptor(this.getLoadBalancerInterceptor());
 
 		ClientHttpResponse httpResponse = null;
 		boolean serverFlag = true;
@@ -109,6 +95,7 @@ public class CompensableRequestInterceptor
 			throw clientEx;
 		} finally {
 			beanRegistry.removeLoadBalancerInterceptor();
+			this.requests.remove();
 
 			if (httpResponse != null) {
 				this.invokeAfterRecvResponse(httpResponse, serverFlag);
@@ -118,6 +105,34 @@ public class CompensableRequestInterceptor
 
 	}
 
+	private CompensableLoadBalancerInterceptor getLoadBalancerInterceptor() {
+		CompensableLoadBalancerInterceptor interceptor = this.loadBalancerInterceptor;
+		if (interceptor != null && interceptor.isStateful() == this.statefully) {
+			return interceptor;
+		} // end-if (interceptor != null && interceptor.isStateful() == this.statefully)
+
+		interceptor = new CompensableLoadBalancerInterceptor(this.statefully) {
+			public void afterCompletion(Server server) {
+				if (server == null) {
+					logger.warn(
+							"There is no suitable server, the TransactionInterceptor.beforeSendRequest() operation is not executed!");
+					return;
+				}
+
+				try {
+					String instanceId = this.getInstanceId(server);
+
+					invokeBeforeSendRequest(requests.get(), instanceId);
+				} catch (IOException ex) {
+					throw new RuntimeException(ex);
+				}
+
+			}
+		};
+		this.loadBalancerInterceptor = interceptor;
+		return interceptor;
+	}
+
 	private void invokeBeforeSendRequest(HttpRequest httpRequest, String identifier) throws IOException {
 		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
@@ -129,8 +144,7 @@ public class CompensableRequestInterceptor
 
 		TransactionContext transactionContext = compensable.getTransactionContext();
 
-		byte[] reqByteArray = SerializeUtils.serializeObject(transactionContext);
-		String reqTransactionStr = Base64.getEncoder().encodeToString(reqByteArray);
+		String reqTransactionStr = TransactionContextCodec.encode(transactionContext);
 
 		HttpHeaders reqHeaders = httpRequest.getHeaders();
 		reqHeaders.add(HEADER_TRANCACTION_KEY, reqTransactionStr);
@@ -155,10 +169,7 @@ public class CompensableRequestInterceptor
 		String respRecursivelyStr = respHeaders.getFirst(HEADER_RECURSIVELY_KEY);
 
 		String transactionText = StringUtils.trimToNull(respTransactionStr);
-		byte[] byteArray = StringUtils.isBlank(transactionText) ? null : Base64.getDecoder().decode(transactionText);
-		TransactionContext serverContext = byteArray == null || byteArray.length == 0 //
-				? null
-				: (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+		TransactionContext serverContext = TransactionContextCodec.decode(transactionText);
 
 		TransactionResponseImpl txResp = new TransactionResponseImpl();
 		txResp.setTransactionContext(serverContext);
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springwebflux;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bytesoft.compensable.CompensableTransaction;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Carries the compensable transaction in the Reactor context instead of a thread. Each blocking segment of the try
+ * phase runs on the elastic scheduler as a forked task of the transaction, which binds it to the executing thread only
+ * for the duration of the segment. A sequence spanning several segments, such as a remote call, is reserved so that
+ * the try phase can not end while it is outstanding.
+ */
+public final class CompensableReactorContext {
+	public static final String KEY_TRANSACTION = CompensableTransaction.class.getName();
+
+	private CompensableReactorContext() {
+	}
+
+	public static CompensableTransaction getTransaction(Context context) {
+		return context.getOrDefault(KEY_TRANSACTION, null);
+	}
+
+	public static Context putTransaction(Context context, CompensableTransaction transaction) {
+		return transaction == null ? context : context.put(KEY_TRANSACTION, transaction);
+	}
+
+	public static <T> Mono<T> execute(final Callable<T> callable) {
+		return Mono.subscriberContext().flatMap(new Function<Context, Mono<T>>() {
+			public Mono<T> apply(Context context) {
+				CompensableTransaction transaction = getTransaction(context);
+				return transaction == null ? Mono.fromCallable(callable) : execute(transaction, callable);
+			}
+		});
+	}
+
+	public static <T> Mono<T> execute(final CompensableTransaction transaction, final Callable<T> callable) {
+		return Mono.defer(new Supplier<Mono<T>>() {
+			public Mono<T> get() {
+				return Mono.fromCallable(transaction.fork(callable));
+			}
+		}).subscribeOn(Schedulers.elastic());
+	}
+
+	public static <T> Mono<T> reserve(final CompensableTransaction transaction, final Mono<T> sequence) {
+		return Mono.defer(new Supplier<Mono<T>>() {
+			public Mono<T> get() {
+				final Runnable reservation = transaction.reserve(new Runnable() {
+					public void run() {
+					}
+				});
+				return sequence.doFinally(new Consumer<SignalType>() {
+					public void accept(SignalType signal) {
+						transaction.release(reservation);
+					}
+				});
+			}
+		});
+	}
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springwebflux.config;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytetcc.TransactionManagerImpl;
+import org.bytesoft.bytetcc.UserCompensableImpl;
+import org.bytesoft.bytetcc.supports.http.PooledClientHttpRequestFactory;
+import org.bytesoft.bytetcc.supports.spring.SpringContextRegistry;
+import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
+import org.bytesoft.bytetcc.supports.springwebflux.web.CompensableExchangeFilterFunction;
+import org.bytesoft.bytetcc.supports.springwebflux.web.CompensableWebFilter;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
+import org.bytesoft.compensable.aware.CompensableEndpointAware;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.TransactionManagementConfigurer;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClients;
+
+/**
+ * The reactive counterpart of SpringBootConfiguration. It registers the reactive coordinator controller instead of the
+ * servlet one and has no Spring MVC interceptors.
+ */
+@ImportResource({ "classpath:bytetcc-supports-springwebflux.xml" })
+@EnableAspectJAutoProxy(proxyTargetClass = true)
+@EnableTransactionManagement
+public class SpringWebFluxConfiguration implements TransactionManagementConfigurer, InitializingBean,
+		CompensableEndpointAware, EnvironmentAware, ApplicationContextAware, CompensableBeanFactoryAware {
+	static final String CONSTANT_MONGODBURI = "spring.data.mongodb.uri";
+	private ApplicationContext applicationContext;
+	private String identifier;
+	private Environment environment;
+	private CompensableBeanFactory beanFactory;
+
+	public void afterPropertiesSet() throws Exception {
+		this.initializeEndpointIfNecessary();
+	}
+
+	public void initializeEndpointIfNecessary() {
+		if (StringUtils.isBlank(this.identifier)) {
+			String host = CommonUtils.getInetAddress();
+			String name = this.environment.getProperty("spring.application.name");
+			String port = this.environment.getProperty("server.port");
+			this.identifier = String.format("%s:%s:%s", host, name, port);
+		}
+	}
+
+	public PlatformTransactionManager annotationDrivenTransactionManager() {
+		JtaTransactionManager jtaTransactionManager = new JtaTransactionManager();
+		jtaTransactionManager.setTransactionManager(this.applicationContext.getBean(TransactionManagerImpl.class));
+		jtaTransactionManager.setUserTransaction(this.applicationContext.getBean(UserCompensableImpl.class));
+
+		SpringContextRegistry springContextRegistry = SpringContextRegistry.getInstance();
+		springContextRegistry.setApplicationContext(this.applicationContext);
+		springContextRegistry.setBeanFactory(this.beanFactory);
+		springContextRegistry.setTransactionManager(jtaTransactionManager);
+		return springContextRegistry.getTransactionManager();
+	}
+
+	@org.springframework.context.annotation.Bean("jtaTransactionManager")
+	public PlatformTransactionManager jtaTransactionManager() {
+		return SpringContextRegistry.getInstance().getTransactionManager();
+	}
+
+	@ConditionalOnMissingBean(com.mongodb.client.MongoClient.class)
+	@ConditionalOnProperty(CONSTANT_MONGODBURI)
+	@org.springframework.context.annotation.Bean
+	public com.mongodb.client.MongoClient mongoClient(
+			@Autowired(required = false) com.mongodb.MongoClient mongoClient) {
+		if (mongoClient == null) {
+			return MongoClients.create(this.environment.getProperty(CONSTANT_MONGODBURI));
+		} else {
+			List<ServerAddress> addressList = mongoClient.getAllAddress();
+			StringBuilder ber = new StringBuilder();
+			for (int i = 0; addressList != null && i < addressList.size(); i++) {
+				ServerAddress address = addressList.get(i);
+				String host = address.getHost();
+				int port = address.getPort();
+				if (i == 0) {
+					ber.append(host).append(":").append(port);
+				} else {
+					ber.append(",").append(host).append(":").append(port);
+				}
+			}
+			return MongoClients.create(String.format("mongodb://%s", ber.toString()));
+		}
+	}
+
+	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
+	@org.springframework.context.annotation.Bean
+	public ClientHttpRequestFactory defaultRequestFactory() {
+		return new PooledClientHttpRequestFactory();
+	}
+
+	@org.springframework.context.annotation.Bean
+	public SpringBootBeanRegistry springBootBeanRegistry(@Autowired ClientHttpRequestFactory requestFactory) {
+		SpringBootBeanRegistry springBootBeanRegistry = SpringBootBeanRegistry.getInstance();
+
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.setRequestFactory(requestFactory);
+
+		springBootBeanRegistry.setRestTemplate(restTemplate);
+
+		return springBootBeanRegistry;
+	}
+
+	@org.springframework.context.annotation.Bean
+	public CompensableWebFilter compensableWebFilter() {
+		return new CompensableWebFilter();
+	}
+
+	@org.springframework.context.annotation.Bean
+	public CompensableExchangeFilterFunction compensableExchangeFilterFunction() {
+		return new CompensableExchangeFilterFunction();
+	}
+
+	@org.springframework.context.annotation.Bean
+	public WebClientCustomizer compensableWebClientCustomizer(
+			@Autowired final CompensableExchangeFilterFunction compensableExchangeFilterFunction) {
+		return new WebClientCustomizer() {
+			public void customize(WebClient.Builder webClientBuilder) {
+				webClientBuilder.filter(compensableExchangeFilterFunction);
+			}
+		};
+	}
+
+	public CompensableBeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(CompensableBeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+	public String getEndpoint() {
+		return this.identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+	}
+
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+
+	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+		this.applicationContext = applicationContext;
+	}
+
+}
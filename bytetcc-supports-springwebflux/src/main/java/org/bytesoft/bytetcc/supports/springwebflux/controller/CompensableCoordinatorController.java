@@ -0,0 +1,207 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springwebflux.controller;
+
+import java.util.concurrent.Callable;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.bytetcc.CompensableCoordinator;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The reactive counterpart of the servlet CompensableCoordinatorController, serving the same endpoints. The
+ * coordinator blocks, so every operation runs on the elastic scheduler instead of the event loop.
+ */
+@Controller
+public class CompensableCoordinatorController implements CompensableBeanFactoryAware {
+	static final Logger logger = LoggerFactory.getLogger(CompensableCoordinatorController.class);
+
+	static final String HEADER_PROPAGATION_KEY = "X-PROPAGATION-KEY";
+
+	@Autowired
+	private CompensableCoordinator compensableCoordinator;
+	@Autowired
+	private CompensableBeanFactory beanFactory;
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/prepare/{xid}", method = RequestMethod.POST)
+	@ResponseBody
+	public Mono<Integer> prepare(@PathVariable("xid") final String identifier, final ServerHttpResponse response) {
+		return this.execute(new Callable<Integer>() {
+			public Integer call() {
+				try {
+					return compensableCoordinator.prepare(createGlobalXid(identifier));
+				} catch (XAException ex) {
+					logger.error("Error occurred while preparing transaction: {}.", identifier, ex);
+					fireFailure(response, ex.errorCode);
+					return -1;
+				} catch (RuntimeException ex) {
+					logger.error("Error occurred while preparing transaction: {}.", identifier, ex);
+					fireFailure(response, null);
+					return -1;
+				}
+			}
+		});
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/commit/{xid}/{opc}", method = RequestMethod.POST)
+	@ResponseBody
+	public Mono<Void> commit(@PathVariable("xid") final String identifier, @PathVariable("opc") final boolean onePhase,
+			final ServerHttpResponse response) {
+		return this.execute(new Callable<Void>() {
+			public Void call() {
+				try {
+					compensableCoordinator.commit(createGlobalXid(identifier), onePhase);
+				} catch (XAException ex) {
+					logger.error("Error occurred while committing transaction: {}.", identifier, ex);
+					fireFailure(response, ex.errorCode);
+				} catch (RuntimeException ex) {
+					logger.error("Error occurred while committing transaction: {}.", identifier, ex);
+					fireFailure(response, null);
+				}
+				return null;
+			}
+		});
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/rollback/{xid}", method = RequestMethod.POST)
+	@ResponseBody
+	public Mono<Void> rollback(@PathVariable("xid") final String identifier, final ServerHttpResponse response) {
+		return this.execute(new Callable<Void>() {
+			public Void call() {
+				try {
+					compensableCoordinator.rollback(createGlobalXid(identifier));
+				} catch (XAException ex) {
+					logger.error("Error occurred while rolling back transaction: {}.", identifier, ex);
+					fireFailure(response, ex.errorCode);
+				} catch (RuntimeException ex) {
+					logger.error("Error occurred while rolling back transaction: {}.", identifier, ex);
+					fireFailure(response, null);
+				}
+				return null;
+			}
+		});
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/recover/{flag}", method = RequestMethod.GET)
+	@ResponseBody
+	public Mono<Xid[]> recover(@PathVariable("flag") final int flag, final ServerHttpResponse response) {
+		return this.execute(new Callable<Xid[]>() {
+			public Xid[] call() {
+				try {
+					return compensableCoordinator.recover(flag);
+				} catch (XAException ex) {
+					logger.error("Error occurred while recovering transactions.", ex);
+					fireFailure(response, ex.errorCode);
+					return new Xid[0];
+				} catch (RuntimeException ex) {
+					logger.error("Error occurred while recovering transactions.", ex);
+					fireFailure(response, null);
+					return new Xid[0];
+				}
+			}
+		});
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/forget/{xid}", method = RequestMethod.POST)
+	@ResponseBody
+	public Mono<Void> forget(@PathVariable("xid") final String identifier, final ServerHttpResponse response) {
+		return this.execute(new Callable<Void>() {
+			public Void call() {
+				try {
+					compensableCoordinator.forget(createGlobalXid(identifier));
+				} catch (XAException ex) {
+					logger.error("Error occurred while forgetting transaction: {}.", identifier, ex);
+					fireFailure(response, ex.errorCode);
+				} catch (RuntimeException ex) {
+					logger.error("Error occurred while forgetting transaction: {}.", identifier, ex);
+					fireFailure(response, null);
+				}
+				return null;
+			}
+		});
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/getIdentifier")
+	@ResponseBody
+	public String getIdentifier(ServerHttpResponse response) {
+		RemoteCoordinator nativePartcipant = (RemoteCoordinator) this.beanFactory.getCompensableNativeParticipant();
+		response.getHeaders().add(HEADER_PROPAGATION_KEY, nativePartcipant.getIdentifier());
+		return nativePartcipant.getIdentifier();
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytetcc/getApplication")
+	@ResponseBody
+	public String getApplication(ServerHttpResponse response) {
+		RemoteCoordinator nativePartcipant = (RemoteCoordinator) this.beanFactory.getCompensableNativeParticipant();
+		response.getHeaders().add(HEADER_PROPAGATION_KEY, nativePartcipant.getIdentifier());
+		return CommonUtils.getApplication(nativePartcipant.getIdentifier());
+	}
+
+	private <T> Mono<T> execute(Callable<T> callable) {
+		return Mono.fromCallable(callable).subscribeOn(Schedulers.elastic());
+	}
+
+	private Xid createGlobalXid(String identifier) {
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		byte[] byteArray = ByteUtils.stringToByteArray(identifier);
+		return xidFactory.createGlobalXid(byteArray);
+	}
+
+	private void fireFailure(ServerHttpResponse response, Integer errorCode) {
+		response.getHeaders().add("failure", "true");
+		if (errorCode != null) {
+			response.getHeaders().add("XA_XAER", String.valueOf(errorCode));
+		} // end-if (errorCode != null)
+		response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	public CompensableBeanFactory getBeanFactory() {
+		return this.beanFactory;
+	}
+
+	public void setBeanFactory(CompensableBeanFactory tbf) {
+		this.beanFactory = tbf;
+	}
+
+	public CompensableCoordinator getCompensableCoordinator() {
+		return compensableCoordinator;
+	}
+
+	public void setCompensableCoordinator(CompensableCoordinator compensableCoordinator) {
+		this.compensableCoordinator = compensableCoordinator;
+	}
+
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springwebflux.web;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
+import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
+import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
+import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
+import org.bytesoft.bytetcc.supports.springboot.SpringBootCoordinator;
+import org.bytesoft.bytetcc.supports.springwebflux.CompensableReactorContext;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableTransaction;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.compensable.aware.CompensableEndpointAware;
+import org.bytesoft.transaction.remote.RemoteAddr;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.remote.RemoteNode;
+import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+public class CompensableExchangeFilterFunction implements ExchangeFilterFunction, CompensableEndpointAware {
+	static final Logger logger = LoggerFactory.getLogger(CompensableExchangeFilterFunction.class);
+
+	static final String HEADER_TRANCACTION_KEY = "X-BYTETCC-TRANSACTION";
+	static final String HEADER_PROPAGATION_KEY = "X-BYTETCC-PROPAGATION";
+	static final String HEADER_RECURSIVELY_KEY = "X-BYTETCC-RECURSIVELY";
+	static final String PREFIX_TRANSACTION_KEY = "/org/bytesoft/bytetcc";
+
+	private String identifier;
+
+	public Mono<ClientResponse> filter(final ClientRequest clientRequest, final ExchangeFunction next) {
+		String path = clientRequest.url().getPath();
+		int position = path.startsWith("/") ? path.indexOf("/", 1) : -1;
+		String pathWithoutContextPath = position > 0 ? path.substring(position) : null;
+		if (StringUtils.startsWith(path, PREFIX_TRANSACTION_KEY) //
+				|| StringUtils.startsWith(pathWithoutContextPath, PREFIX_TRANSACTION_KEY)) {
+			return next.exchange(clientRequest);
+		}
+
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+
+		// the request may be built by a thread which is still associated with the transaction
+		final CompensableTransaction associated = compensableManager.getCompensableTransactionQuietly();
+
+		return Mono.subscriberContext().flatMap(new Function<Context, Mono<ClientResponse>>() {
+			public Mono<ClientResponse> apply(Context context) {
+				CompensableTransaction compensable = CompensableReactorContext.getTransaction(context);
+				compensable = compensable == null ? associated : compensable;
+				if (compensable == null) {
+					return next.exchange(clientRequest);
+				} else if (compensable.getTransactionContext().isCompensable() == false) {
+					return next.exchange(clientRequest);
+				}
+				return exchange(compensable, clientRequest, next);
+			}
+		});
+	}
+
+	/**
+	 * Once the request has been sent, exactly one of the response, the error and the cancel signals completes the
+	 * remote branch. Without a response the participant is delisted as if the server returned a client error. The whole
+	 * exchange is reserved, the try phase can not end until the remote branch has been completed.
+	 */
+	private Mono<ClientResponse> exchange(final CompensableTransaction compensable, final ClientRequest clientRequest,
+			final ExchangeFunction next) {
+		final AtomicBoolean requested = new AtomicBoolean();
+		final AtomicBoolean completed = new AtomicBoolean();
+
+		Mono<ClientRequest> request = CompensableReactorContext.execute(compensable, new Callable<ClientRequest>() {
+			public ClientRequest call() throws Exception {
+				return invokeBeforeSendRequest(clientRequest);
+			}
+		});
+
+		Mono<ClientResponse> sequence = request.flatMap(new Function<ClientRequest, Mono<ClientResponse>>() {
+			public Mono<ClientResponse> apply(ClientRequest clientRequest) {
+				requested.set(true);
+				return next.exchange(clientRequest).onErrorResume(new Function<Throwable, Mono<ClientResponse>>() {
+					public Mono<ClientResponse> apply(Throwable error) {
+						if (completed.compareAndSet(false, true) == false) {
+							return Mono.error(error);
+						}
+						return afterRecvFailure(compensable, clientRequest).then(Mono.<ClientResponse> error(error));
+					}
+				});
+			}
+		}).flatMap(new Function<ClientResponse, Mono<ClientResponse>>() {
+			public Mono<ClientResponse> apply(final ClientResponse clientResponse) {
+				if (completed.compareAndSet(false, true) == false) {
+					return Mono.just(clientResponse);
+				}
+				return CompensableReactorContext.execute(compensable, new Callable<ClientResponse>() {
+					public ClientResponse call() throws Exception {
+						boolean serverFlag = clientResponse.statusCode().is4xxClientError() == false;
+						invokeAfterRecvResponse(clientResponse, serverFlag);
+						return clientResponse;
+					}
+				});
+			}
+		}).doOnCancel(new Runnable() {
+			public void run() {
+				if (requested.get() && completed.compareAndSet(false, true)) {
+					Mono<ClientRequest> failure = afterRecvFailure(compensable, clientRequest);
+					CompensableReactorContext.reserve(compensable, failure).subscribe(null, new Consumer<Throwable>() {
+						public void accept(Throwable error) {
+							logger.error("Error occurred while completing the cancelled request: {}.", clientRequest.url(),
+									error);
+						}
+					});
+				}
+			}
+		});
+
+		return CompensableReactorContext.reserve(compensable, sequence);
+	}
+
+	private Mono<ClientRequest> afterRecvFailure(CompensableTransaction compensable, final ClientRequest clientRequest) {
+		return CompensableReactorContext.execute(compensable, new Callable<ClientRequest>() {
+			public ClientRequest call() throws Exception {
+				invokeAfterRecvFailure(clientRequest);
+				return clientRequest;
+			}
+		});
+	}
+
+	private ClientRequest invokeBeforeSendRequest(ClientRequest clientRequest) {
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
+
+		TransactionContext transactionContext = compensable.getTransactionContext();
+
+		String reqTransactionStr = TransactionContextCodec.encode(transactionContext);
+
+		TransactionRequestImpl request = new TransactionRequestImpl();
+		request.setTransactionContext(transactionContext);
+
+		request.setTargetTransactionCoordinator(this.getParticipant(clientRequest.url()));
+
+		transactionInterceptor.beforeSendRequest(request);
+
+		return ClientRequest.from(clientRequest) //
+				.header(HEADER_TRANCACTION_KEY, reqTransactionStr) //
+				.header(HEADER_PROPAGATION_KEY, this.identifier).build();
+	}
+
+	private RemoteCoordinator getParticipant(URI targetURI) {
+		RemoteCoordinatorRegistry registry = RemoteCoordinatorRegistry.getInstance();
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+
+		String targetHost = targetURI.getHost();
+		int targetPort = targetURI.getPort();
+
+		RemoteAddr remoteAddr = new RemoteAddr();
+		remoteAddr.setServerHost(targetHost);
+		remoteAddr.setServerPort(targetPort);
+
+		RemoteCoordinator participant = registry.getPhysicalInstance(remoteAddr);
+		if (participant == null) {
+			SpringBootCoordinator handler = new SpringBootCoordinator();
+			handler.setIdentifier(String.format("%s:%s:%s", targetHost, null, targetPort));
+			handler.setEnvironment(beanRegistry.getEnvironment());
+			participant = (RemoteCoordinator) Proxy.newProxyInstance(SpringBootCoordinator.class.getClassLoader(),
+					new Class[] { RemoteCoordinator.class }, handler);
+		}
+		return participant;
+	}
+
+	private void invokeAfterRecvResponse(ClientResponse clientResponse, boolean serverFlag) {
+		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		HttpHeaders respHeaders = clientResponse.headers().asHttpHeaders();
+		String respTransactionStr = respHeaders.getFirst(HEADER_TRANCACTION_KEY);
+		String respPropagationStr = respHeaders.getFirst(HEADER_PROPAGATION_KEY);
+		String respRecursivelyStr = respHeaders.getFirst(HEADER_RECURSIVELY_KEY);
+
+		String instanceId = StringUtils.trimToEmpty(respPropagationStr);
+
+		RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(instanceId);
+		RemoteNode remoteNode = CommonUtils.getRemoteNode(instanceId);
+		if (remoteAddr != null && remoteNode != null) {
+			participantRegistry.putRemoteNode(remoteAddr, remoteNode);
+		}
+
+		String transactionText = StringUtils.trimToNull(respTransactionStr);
+		TransactionContext serverContext = TransactionContextCodec.decode(transactionText);
+
+		TransactionResponseImpl txResp = new TransactionResponseImpl();
+		txResp.setTransactionContext(serverContext);
+		RemoteCoordinator serverCoordinator = beanRegistry.getConsumeCoordinator(instanceId);
+		txResp.setSourceTransactionCoordinator(serverCoordinator);
+		txResp.setParticipantDelistFlag(serverFlag ? StringUtils.equalsIgnoreCase(respRecursivelyStr, "TRUE") : true);
+
+		transactionInterceptor.afterReceiveResponse(txResp);
+	}
+
+	private void invokeAfterRecvFailure(ClientRequest clientRequest) {
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		TransactionResponseImpl txResp = new TransactionResponseImpl();
+		txResp.setSourceTransactionCoordinator(this.getParticipant(clientRequest.url()));
+		txResp.setParticipantDelistFlag(true);
+
+		transactionInterceptor.afterReceiveResponse(txResp);
+	}
+
+	public String getEndpoint() {
+		return this.identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+	}
+
+}
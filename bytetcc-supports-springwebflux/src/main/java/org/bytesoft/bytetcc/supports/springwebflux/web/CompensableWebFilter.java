@@ -0,0 +1,171 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springwebflux.web;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
+import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytetcc.supports.http.TransactionContextCodec;
+import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
+import org.bytesoft.bytetcc.supports.springwebflux.CompensableReactorContext;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableTransaction;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.compensable.aware.CompensableEndpointAware;
+import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+public class CompensableWebFilter implements WebFilter, CompensableEndpointAware {
+	static final Logger logger = LoggerFactory.getLogger(CompensableWebFilter.class);
+
+	static final String HEADER_TRANCACTION_KEY = "X-BYTETCC-TRANSACTION";
+	static final String HEADER_PROPAGATION_KEY = "X-BYTETCC-PROPAGATION";
+	static final String HEADER_RECURSIVELY_KEY = "X-BYTETCC-RECURSIVELY";
+	static final String PREFIX_TRANSACTION_KEY = "/org/bytesoft/bytetcc";
+
+	private String identifier;
+
+	public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		final String transactionStr = request.getHeaders().getFirst(HEADER_TRANCACTION_KEY);
+		if (StringUtils.isBlank(transactionStr)) {
+			return chain.filter(exchange);
+		}
+
+		String path = request.getPath().pathWithinApplication().value();
+		if (StringUtils.startsWith(path, PREFIX_TRANSACTION_KEY)) {
+			return chain.filter(exchange);
+		}
+
+		return Mono.defer(new Supplier<Mono<Void>>() {
+			public Mono<Void> get() {
+				CompensableTransaction compensable = invokeAfterRecvRequest(exchange, transactionStr);
+				return filter(exchange, chain, compensable);
+			}
+		}).subscribeOn(Schedulers.elastic()); // the interceptor blocks on the transaction log and locks
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain, final CompensableTransaction compensable) {
+		final AtomicBoolean completed = new AtomicBoolean();
+		final Mono<Void> completion = Mono.fromRunnable(new Runnable() {
+			public void run() {
+				if (completed.compareAndSet(false, true)) {
+					invokeBeforeSendResponse(compensable);
+				} // end-if (completed.compareAndSet(false, true))
+			}
+		}).subscribeOn(Schedulers.elastic());
+
+		return chain.filter(exchange).subscriberContext(new Function<Context, Context>() {
+			public Context apply(Context context) {
+				return CompensableReactorContext.putTransaction(context, compensable);
+			}
+		}).doOnCancel(new Runnable() {
+			public void run() {
+				completion.subscribe();
+			}
+		}).onErrorResume(new Function<Throwable, Mono<Void>>() {
+			public Mono<Void> apply(Throwable error) {
+				return completion.then(Mono.<Void> error(error));
+			}
+		}).then(completion);
+	}
+
+	private CompensableTransaction invokeAfterRecvRequest(ServerWebExchange exchange, String transactionStr) {
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		HttpHeaders reqHeaders = exchange.getRequest().getHeaders();
+		String propagationStr = reqHeaders.getFirst(HEADER_PROPAGATION_KEY);
+
+		String transactionText = StringUtils.trimToNull(transactionStr);
+		String propagationText = StringUtils.trimToNull(propagationStr);
+
+		TransactionContext transactionContext = TransactionContextCodec.decode(transactionText);
+		if (transactionContext != null) {
+			transactionContext.setPropagated(true);
+			transactionContext.setPropagatedBy(propagationText);
+		}
+
+		TransactionRequestImpl req = new TransactionRequestImpl();
+		req.setTransactionContext(transactionContext);
+		req.setTargetTransactionCoordinator(beanRegistry.getConsumeCoordinator(propagationText));
+
+		transactionInterceptor.afterReceiveRequest(req);
+
+		// the transaction is carried by the reactor context from now on, release the event loop thread
+		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
+		compensableManager.detachThread();
+
+		String propagatedBy = (String) compensable.getTransactionContext().getPropagatedBy();
+
+		String compensableStr = TransactionContextCodec.encode(compensable.getTransactionContext(),
+				TransactionContextCodec.isLegacy(transactionText));
+
+		HttpHeaders respHeaders = exchange.getResponse().getHeaders();
+		respHeaders.set(HEADER_TRANCACTION_KEY, compensableStr);
+		respHeaders.set(HEADER_PROPAGATION_KEY, this.identifier);
+		respHeaders.set(HEADER_RECURSIVELY_KEY,
+				String.valueOf(StringUtils.equalsIgnoreCase(propagatedBy, propagationText) == false));
+
+		return compensable;
+	}
+
+	private void invokeBeforeSendResponse(CompensableTransaction compensable) {
+		SpringBootBeanRegistry beanRegistry = SpringBootBeanRegistry.getInstance();
+		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		CompensableManager compensableManager = beanFactory.getCompensableManager();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		CompensableTransaction current = compensableManager.getCompensableTransactionQuietly();
+		if (current == null) {
+			compensableManager.attachThread(compensable);
+		} else if (current != compensable) {
+			throw new IllegalStateException("The thread has been associated with another compensable transaction!");
+		}
+
+		TransactionResponseImpl resp = new TransactionResponseImpl();
+		resp.setTransactionContext(compensable.getTransactionContext());
+		resp.setSourceTransactionCoordinator(beanRegistry.getConsumeCoordinator(null));
+
+		transactionInterceptor.beforeSendResponse(resp);
+	}
+
+	public String getEndpoint() {
+		return this.identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+	}
+
+}
@@ -19,6 +19,7 @@ import java.io.ObjectStreamException;
 import java.lang.reflect.Method;
 
 import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.Durability;
 
 public class CompensableInvocationImpl implements CompensableInvocation {
 
@@ -33,6 +34,7 @@ public class CompensableInvocationImpl implements CompensableInvocation {
 
 	private boolean simplified;
 	private boolean enlisted;
+	private Durability durability;
 
 	protected Object writeReplace() throws ObjectStreamException {
 		CompensableInvocationInfo that = new CompensableInvocationInfo();
@@ -42,6 +44,7 @@ public class CompensableInvocationImpl implements CompensableInvocation {
 		that.setCancellableKey(this.cancellableKey);
 		that.setIdentifier(this.identifier);
 		that.setSimplified(this.simplified);
+		that.setDurability(this.durability);
 
 		that.setDeclaringClass(this.getDeclaringClass());
 		that.setMethodName(this.getMethodName());
@@ -144,4 +147,12 @@ public class CompensableInvocationImpl implements CompensableInvocation {
 		this.simplified = simplified;
 	}
 
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(Durability durability) {
+		this.durability = durability;
+	}
+
 }
@@ -18,6 +18,7 @@ package org.bytesoft.bytetcc.supports;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 
+import org.bytesoft.compensable.Durability;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +35,7 @@ public class CompensableInvocationInfo implements Serializable {
 	private Object identifier;
 
 	private boolean simplified;
+	private Durability durability;
 
 	protected Object readResolve() throws ObjectStreamException {
 		CompensableInvocationImpl that = new CompensableInvocationImpl();
@@ -43,6 +45,7 @@ public class CompensableInvocationInfo implements Serializable {
 		that.setCancellableKey(this.cancellableKey);
 		that.setIdentifier(this.identifier);
 		that.setSimplified(this.simplified);
+		that.setDurability(this.durability);
 
 		that.setDeclaringClass(this.declaringClass);
 		that.setMethodName(this.methodName);
@@ -115,4 +118,12 @@ public class CompensableInvocationInfo implements Serializable {
 		this.simplified = simplified;
 	}
 
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(Durability durability) {
+		this.durability = durability;
+	}
+
 }
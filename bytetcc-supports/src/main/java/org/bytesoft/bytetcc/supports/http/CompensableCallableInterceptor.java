@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.http;
+
+import java.util.concurrent.Callable;
+
+import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableTransaction;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+public class CompensableCallableInterceptor implements CallableProcessingInterceptor {
+	private final CompensableManager compensableManager;
+	private final CompensableTransaction transaction;
+
+	public CompensableCallableInterceptor(CompensableManager compensableManager, CompensableTransaction transaction) {
+		this.compensableManager = compensableManager;
+		this.transaction = transaction;
+	}
+
+	public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) throws Exception {
+	}
+
+	public <T> void preProcess(NativeWebRequest request, Callable<T> task) throws Exception {
+		CompensableTransaction current = this.compensableManager.getCompensableTransactionQuietly();
+		if (current == null) {
+			this.compensableManager.attachThread(this.transaction);
+		} else if (current != this.transaction) {
+			throw new IllegalStateException("The thread has been associated with another compensable transaction!");
+		}
+	}
+
+	public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) throws Exception {
+		if (this.compensableManager.getCompensableTransactionQuietly() == this.transaction) {
+			this.compensableManager.detachThread();
+		} // end-if (this.compensableManager.getCompensableTransactionQuietly() == this.transaction)
+	}
+
+	public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) throws Exception {
+		return RESULT_NONE;
+	}
+
+	public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) throws Exception {
+		return RESULT_NONE;
+	}
+
+	public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) throws Exception {
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+/**
+ * Request factory for the blocking coordinator RestTemplate: keep-alive connections are pooled and reused across
+ * phase-2 calls.
+ */
+public class PooledClientHttpRequestFactory extends OkHttp3ClientHttpRequestFactory {
+	static final int DEFAULT_MAX_IDLE_CONNECTIONS = 32;
+	static final long DEFAULT_KEEP_ALIVE_MILLIS = 5L * 60 * 1000;
+
+	public PooledClientHttpRequestFactory() {
+		this(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MILLIS);
+	}
+
+	public PooledClientHttpRequestFactory(int maxIdleConnections, long keepAliveMillis) {
+		super(createHttpClient(maxIdleConnections, keepAliveMillis));
+	}
+
+	private static OkHttpClient createHttpClient(int maxIdleConnections, long keepAliveMillis) {
+		ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS);
+
+		return new OkHttpClient.Builder().connectionPool(connectionPool).build();
+	}
+
+}
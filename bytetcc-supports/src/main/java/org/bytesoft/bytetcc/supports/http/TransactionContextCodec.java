@@ -0,0 +1,171 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+
+/**
+ * Codec of the X-BYTETCC-TRANSACTION header.
+ *
+ * <pre>
+ * version(1) | flags(1) | formatId(4) | gtridLen(1) gtrid | bqualLen(1) bqual
+ *            | createdTime(8) | expiredTime(8) | propagatedByLen(2) propagatedBy
+ * </pre>
+ *
+ * The binary form is carried as unpadded Base64url; the legacy form (Java serialization, Base64) is always accepted and
+ * still produced for contexts that cannot be represented, or when -Dorg.bytesoft.bytetcc.header.legacy=true is set.
+ */
+public final class TransactionContextCodec {
+	static final String CONSTANT_LEGACY_ENCODING = "org.bytesoft.bytetcc.header.legacy";
+	static final String LEGACY_PREFIX = "rO0"; // Base64 of the java serialization stream magic 0xACED
+
+	static final byte VERSION = 0x1;
+
+	static final int FLAG_COMPENSABLE = 0x1;
+	static final int FLAG_STATEFULLY = 0x2;
+	static final int FLAG_PROPAGATED = 0x4;
+	static final int FLAG_ROLLBACK_ONLY = 0x8;
+	static final int FLAG_PARTICIPANT_READONLY = 0x10;
+
+	static final boolean legacyEncoding = Boolean.getBoolean(CONSTANT_LEGACY_ENCODING);
+
+	private TransactionContextCodec() {
+	}
+
+	public static String encode(TransactionContext transactionContext) throws IOException {
+		return encode(transactionContext, legacyEncoding);
+	}
+
+	public static String encode(TransactionContext transactionContext, boolean legacy) throws IOException {
+		if (transactionContext == null) {
+			return null;
+		}
+
+		Object propagatedBy = transactionContext.getPropagatedBy();
+		TransactionXid xid = transactionContext.getXid();
+		if (legacy || xid == null || (propagatedBy != null && String.class.isInstance(propagatedBy) == false)) {
+			byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
+			return Base64.getEncoder().encodeToString(byteArray);
+		}
+
+		byte[] globalTransactionId = xid.getGlobalTransactionId();
+		byte[] branchQualifier = xid.getBranchQualifier();
+		byte[] propagatedByArray = propagatedBy == null ? null : ((String) propagatedBy).getBytes(StandardCharsets.UTF_8);
+
+		int gtridLength = globalTransactionId == null ? 0 : globalTransactionId.length;
+		int bqualLength = branchQualifier == null ? 0 : branchQualifier.length;
+		int propagatedByLength = propagatedByArray == null ? 0 : propagatedByArray.length;
+		if (gtridLength > Byte.MAX_VALUE || bqualLength > Byte.MAX_VALUE || propagatedByLength > Short.MAX_VALUE) {
+			byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
+			return Base64.getEncoder().encodeToString(byteArray);
+		}
+
+		int flags = 0;
+		flags |= transactionContext.isCompensable() ? FLAG_COMPENSABLE : 0;
+		flags |= transactionContext.isStatefully() ? FLAG_STATEFULLY : 0;
+		flags |= transactionContext.isPropagated() ? FLAG_PROPAGATED : 0;
+		flags |= transactionContext.isRollbackOnly() ? FLAG_ROLLBACK_ONLY : 0;
+		flags |= transactionContext.isParticipantReadonly() ? FLAG_PARTICIPANT_READONLY : 0;
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 4 + 1 + gtridLength + 1 + bqualLength + 8 + 8 + 2 + propagatedByLength);
+		buffer.put(VERSION);
+		buffer.put((byte) flags);
+		buffer.putInt(xid.getFormatId());
+		buffer.put((byte) gtridLength);
+		if (gtridLength > 0) {
+			buffer.put(globalTransactionId);
+		}
+		buffer.put((byte) bqualLength);
+		if (bqualLength > 0) {
+			buffer.put(branchQualifier);
+		}
+		buffer.putLong(transactionContext.getCreatedTime());
+		buffer.putLong(transactionContext.getExpiredTime());
+		buffer.putShort(propagatedByArray == null ? -1 : (short) propagatedByLength);
+		if (propagatedByLength > 0) {
+			buffer.put(propagatedByArray);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+
+	public static TransactionContext decode(String text) throws IOException {
+		if (text == null || text.length() == 0) {
+			return null;
+		} else if (isLegacy(text)) {
+			byte[] byteArray = Base64.getDecoder().decode(text);
+			return byteArray.length == 0 ? null : (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+		}
+
+		ByteBuffer buffer = null;
+		try {
+			buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(text));
+		} catch (IllegalArgumentException ex) {
+			throw new IOException(String.format("Invalid transaction header: %s", text), ex);
+		}
+
+		try {
+			byte version = buffer.get();
+			if (version != VERSION) {
+				throw new IOException(String.format("Unsupported transaction header version: %s", version));
+			}
+
+			int flags = buffer.get();
+			int formatId = buffer.getInt();
+			byte[] globalTransactionId = new byte[buffer.get()];
+			buffer.get(globalTransactionId);
+			byte[] branchQualifier = new byte[buffer.get()];
+			buffer.get(branchQualifier);
+			long createdTime = buffer.getLong();
+			long expiredTime = buffer.getLong();
+			short propagatedByLength = buffer.getShort();
+			String propagatedBy = null;
+			if (propagatedByLength >= 0) {
+				byte[] propagatedByArray = new byte[propagatedByLength];
+				buffer.get(propagatedByArray);
+				propagatedBy = new String(propagatedByArray, StandardCharsets.UTF_8);
+			}
+
+			TransactionContext transactionContext = new TransactionContext();
+			transactionContext.setXid(branchQualifier.length == 0 //
+					? new TransactionXid(formatId, globalTransactionId)
+					: new TransactionXid(formatId, globalTransactionId, branchQualifier));
+			transactionContext.setCreatedTime(createdTime);
+			transactionContext.setExpiredTime(expiredTime);
+			transactionContext.setPropagatedBy(propagatedBy);
+			transactionContext.setCompensable((flags & FLAG_COMPENSABLE) != 0);
+			transactionContext.setStatefully((flags & FLAG_STATEFULLY) != 0);
+			transactionContext.setPropagated((flags & FLAG_PROPAGATED) != 0);
+			transactionContext.setRollbackOnly((flags & FLAG_ROLLBACK_ONLY) != 0);
+			transactionContext.setParticipantReadonly((flags & FLAG_PARTICIPANT_READONLY) != 0);
+			return transactionContext;
+		} catch (RuntimeException ex) {
+			throw new IOException(String.format("Invalid transaction header: %s", text), ex);
+		}
+	}
+
+	public static boolean isLegacy(String text) {
+		return text != null && text.startsWith(LEGACY_PREFIX);
+	}
+
+}
@@ -0,0 +1,625 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.internal;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.transaction.xa.Xid;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.CompensableInvocationRegistry;
+import org.bytesoft.compensable.Durability;
+import org.bytesoft.compensable.archive.CompensableArchive;
+import org.bytesoft.compensable.archive.TransactionArchive;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+
+/**
+ * Appends every write to a local log and acknowledges, the entries are replicated to mongodb in order by a dedicated
+ * thread. While mongodb is slow or unavailable the entries are spooled locally.
+ */
+public class HybridCompensableLogger extends MongoCompensableLogger implements Runnable {
+	static Logger logger = LoggerFactory.getLogger(HybridCompensableLogger.class);
+
+	static final int CONSTANTS_HEADER_SIZE = 8;
+	static final long MAX_RETRY_MILLIS = 5000L;
+
+	static final byte OPERATOR_CREATE_TRANSACTION = 0x1;
+	static final byte OPERATOR_UPDATE_TRANSACTION = 0x2;
+	static final byte OPERATOR_DELETE_TRANSACTION = 0x3;
+	static final byte OPERATOR_CREATE_PARTICIPANT = 0x4;
+	static final byte OPERATOR_UPDATE_PARTICIPANT = 0x5;
+	static final byte OPERATOR_DELETE_PARTICIPANT = 0x6;
+	static final byte OPERATOR_CREATE_COMPENSABLE = 0x7;
+	static final byte OPERATOR_UPDATE_COMPENSABLE = 0x8;
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition changed = this.lock.newCondition();
+	private final Lock forceLock = new ReentrantLock();
+
+	private File directory;
+	private Durability durability = Durability.SYNC;
+	private long asyncFlushMillis = 1000L;
+	private long groupCommitMillis = 2L;
+	private long truncateThreshold = 1024L * 1024L;
+	private long replicationTimeoutMillis = 30000L;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private volatile long writePosition;
+	private volatile long forcedPosition;
+	private long forcedMillis;
+	private volatile long readPosition;
+	private volatile boolean released;
+	private long replicatingVersion; // accessed by the replicator thread only
+	@SuppressWarnings("serial")
+	private final Map<String, Boolean> replicationFences = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return this.size() > 1024;
+		}
+	}; // accessed by the replicator thread only
+
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+
+		this.initializeReplicationLog();
+
+		Thread replicator = new Thread(this, "bytetcc-replicator");
+		replicator.setDaemon(true);
+		replicator.start();
+	}
+
+	private void initializeReplicationLog() throws IOException {
+		File directory = this.directory == null ? this.getDefaultDirectory() : this.directory;
+		this.raf = new RandomAccessFile(new File(directory, "bytetcc-replication.log"), "rw");
+		this.channel = this.raf.getChannel();
+
+		long size = this.channel.size();
+		long position = CONSTANTS_HEADER_SIZE;
+		if (size >= CONSTANTS_HEADER_SIZE) {
+			ByteBuffer header = ByteBuffer.allocate(CONSTANTS_HEADER_SIZE);
+			this.read(header, 0);
+			long replicated = header.getLong(0);
+			position = replicated < CONSTANTS_HEADER_SIZE || replicated > size ? CONSTANTS_HEADER_SIZE : replicated;
+		} // end-if (size >= CONSTANTS_HEADER_SIZE)
+
+		this.readPosition = position;
+
+		// locate the end of the last complete entry, a torn entry is discarded.
+		ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+		while (position + 4 <= size) {
+			sizeBuffer.clear();
+			this.read(sizeBuffer, position);
+			int length = sizeBuffer.getInt(0);
+			if (length <= 0 || position + 4 + length > size) {
+				break;
+			}
+			position = position + 4 + length;
+		}
+
+		this.writePosition = position;
+		this.forcedPosition = position;
+		this.channel.truncate(position);
+		this.writeHeader(this.readPosition);
+
+		if (this.writePosition > this.readPosition) {
+			logger.info("Replication log has {} bytes pending for mongodb.", this.writePosition - this.readPosition);
+		} // end-if (this.writePosition > this.readPosition)
+	}
+
+	public File getDefaultDirectory() {
+		String address = StringUtils.trimToEmpty(this.getEndpoint());
+		File directory = new File(String.format("bytetcc/%s", address.replaceAll("\\W", "_")));
+		if (directory.exists() == false) {
+			try {
+				directory.mkdirs();
+			} catch (SecurityException ex) {
+				logger.error("Error occurred while creating directory {}!", directory.getAbsolutePath(), ex);
+			}
+		}
+		return directory;
+	}
+
+	public void createTransaction(TransactionArchive archive) {
+		this.appendQuietly(OPERATOR_CREATE_TRANSACTION, archive.getXid(), archive, true);
+	}
+
+	public void updateTransaction(TransactionArchive archive) {
+		this.appendQuietly(OPERATOR_UPDATE_TRANSACTION, archive.getXid(), archive, true);
+	}
+
+	public void deleteTransaction(TransactionArchive archive) {
+		this.appendQuietly(OPERATOR_DELETE_TRANSACTION, archive.getXid(), archive, false);
+	}
+
+	public void createParticipant(XAResourceArchive archive) {
+		this.appendQuietly(OPERATOR_CREATE_PARTICIPANT, archive.getXid(), archive, true);
+	}
+
+	public void updateParticipant(XAResourceArchive archive) {
+		this.appendQuietly(OPERATOR_UPDATE_PARTICIPANT, archive.getXid(), archive, true);
+	}
+
+	public void deleteParticipant(XAResourceArchive archive) {
+		this.appendQuietly(OPERATOR_DELETE_PARTICIPANT, archive.getXid(), archive, true);
+	}
+
+	public void createCompensable(CompensableArchive archive) {
+		this.appendQuietly(OPERATOR_CREATE_COMPENSABLE, archive.getIdentifier(), archive, true);
+	}
+
+	public void updateCompensable(CompensableArchive archive) {
+		this.appendQuietly(OPERATOR_UPDATE_COMPENSABLE, archive.getIdentifier(), archive, true);
+	}
+
+	private void appendQuietly(byte operator, Xid xid, Object archive, boolean rollbackRequired) {
+		try {
+			long position = this.append(operator, (TransactionXid) xid, archive);
+			this.flush(position, this.getCurrentDurability(archive));
+		} catch (IOException error) {
+			logger.error("Error occurred while appending to the replication log.", error);
+			if (rollbackRequired) {
+				this.getBeanFactory().getCompensableManager().setRollbackOnlyQuietly();
+			} // end-if (rollbackRequired)
+		} catch (RuntimeException error) {
+			logger.error("Error occurred while appending to the replication log.", error);
+			if (rollbackRequired) {
+				this.getBeanFactory().getCompensableManager().setRollbackOnlyQuietly();
+			} // end-if (rollbackRequired)
+		}
+	}
+
+	private long append(byte operator, TransactionXid xid, Object archive) throws IOException {
+		ArchiveDeserializer deserializer = this.getBeanFactory().getArchiveDeserializer();
+
+		long version = this.getVersionManager().getInstanceVersion(this.getEndpoint());
+		if (version <= 0) {
+			throw new IllegalStateException(String.format("Invalid version(%s)!", this.getEndpoint()));
+		}
+
+		byte[] global = xid.getGlobalTransactionId();
+		byte[] value = deserializer.serialize(xid, archive);
+
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 8 + 1 + global.length + value.length);
+		buffer.putInt(1 + 8 + 1 + global.length + value.length);
+		buffer.put(operator);
+		buffer.putLong(version); // the instance version which wrote the entry
+		buffer.put((byte) global.length);
+		buffer.put(global);
+		buffer.put(value);
+		buffer.flip();
+
+		try {
+			this.lock.lock();
+			this.write(buffer, this.writePosition);
+			this.writePosition = this.writePosition + buffer.limit();
+			this.changed.signalAll();
+			return this.writePosition;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private Durability getCurrentDurability(Object archive) {
+		CompensableInvocation invocation = CompensableInvocationRegistry.getInstance().getCurrent();
+		if (invocation == null && CompensableArchive.class.isInstance(archive)) {
+			invocation = ((CompensableArchive) archive).getCompensable();
+		} // end-if (invocation == null && CompensableArchive.class.isInstance(archive))
+
+		Durability current = invocation == null ? null : invocation.getDurability();
+		return current == null || Durability.DEFAULT.equals(current) ? this.durability : current;
+	}
+
+	private void flush(long position, Durability current) throws IOException {
+		if (Durability.ASYNC.equals(current)) {
+			return; // flushed by the replicator
+		} else if (Durability.GROUP_COMMIT.equals(current)) {
+			this.forceIfNecessary(position, this.groupCommitMillis);
+		} else {
+			this.forceIfNecessary(position, 0);
+		}
+	}
+
+	/**
+	 * The writers queue on the force lock, the leader forces everything appended so far and the followers return as
+	 * soon as their entry is covered. A group commit writer waits a little before queuing, without holding the force
+	 * lock, so that more writers are covered by the next force.
+	 */
+	private void forceIfNecessary(long position, long gatherMillis) throws IOException {
+		if (this.forcedPosition >= position) {
+			return;
+		} else if (gatherMillis > 0) {
+			this.waitingFor(gatherMillis);
+			if (this.forcedPosition >= position) {
+				return;
+			}
+		}
+
+		try {
+			this.forceLock.lock();
+			if (this.forcedPosition >= position) {
+				return;
+			}
+
+			long forcingPosition = this.writePosition;
+			this.channel.force(false);
+			this.forcedPosition = forcingPosition;
+		} finally {
+			this.forceLock.unlock();
+		}
+	}
+
+	public void run() {
+		long retryMillis = 0;
+		while (this.released == false) {
+			this.forceInBackgroundIfNecessary();
+
+			long position = this.readPosition;
+			if (position >= this.writePosition) {
+				this.truncateIfNecessary();
+				this.waitForAppend(100);
+				continue;
+			} else if (this.getVersionManager().getInstanceVersion(this.getEndpoint()) <= 0) {
+				this.waitingFor(100); // the instance is not registered yet
+				continue;
+			}
+
+			try {
+				long nextPosition = this.replicate(position);
+				this.readPosition = nextPosition;
+				this.writeHeader(nextPosition);
+				retryMillis = 0;
+			} catch (IOException ex) {
+				logger.error("Error occurred while reading the replication log.", ex);
+				retryMillis = Math.min(Math.max(retryMillis * 2, 100), MAX_RETRY_MILLIS);
+				this.waitingFor(retryMillis);
+			} catch (RuntimeException rex) {
+				retryMillis = Math.min(Math.max(retryMillis * 2, 100), MAX_RETRY_MILLIS);
+				logger.warn("Error occurred while replicating to mongodb, retry in {} ms.", retryMillis, rex);
+				this.waitingFor(retryMillis);
+			}
+		}
+
+		IOUtils.closeQuietly(this.channel);
+		IOUtils.closeQuietly(this.raf);
+	}
+
+	private void forceInBackgroundIfNecessary() {
+		long current = System.currentTimeMillis();
+		if (this.forcedPosition >= this.writePosition || current - this.forcedMillis < this.asyncFlushMillis) {
+			return;
+		}
+
+		this.forcedMillis = current;
+		try {
+			this.forceIfNecessary(this.writePosition, 0);
+		} catch (IOException ex) {
+			logger.error("Error occurred while flushing the replication log.", ex);
+		}
+	}
+
+	private long replicate(long position) throws IOException {
+		ArchiveDeserializer deserializer = this.getBeanFactory().getArchiveDeserializer();
+		XidFactory xidFactory = this.getBeanFactory().getCompensableXidFactory();
+
+		ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+		this.read(sizeBuffer, position);
+		int length = sizeBuffer.getInt(0);
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		this.read(buffer, position + 4);
+		buffer.flip();
+
+		byte operator = buffer.get();
+		long version = buffer.getLong();
+		byte[] global = new byte[buffer.get() & 0xFF];
+		buffer.get(global);
+		byte[] value = new byte[buffer.remaining()];
+		buffer.get(value);
+
+		String identifier = ByteUtils.byteArrayToString(global);
+		String fencingKey = String.format("%s:%s", identifier, version);
+		Boolean fenced = this.replicationFences.get(fencingKey);
+		if (fenced == null) {
+			fenced = this.isReplicationFenced(operator, identifier, version);
+		} // end-if (fenced == null)
+
+		if (fenced) {
+			this.replicationFences.put(fencingKey, fenced);
+			return position + 4 + length;
+		} else if (operator != OPERATOR_CREATE_TRANSACTION) {
+			this.replicationFences.put(fencingKey, fenced); // the fence is checked once per transaction version
+		}
+
+		TransactionXid xid = xidFactory.createGlobalXid(global);
+		Object archive = deserializer.deserialize(xid, value);
+
+		this.replicatingVersion = version;
+		switch (operator) {
+		case OPERATOR_CREATE_TRANSACTION:
+			super.createTransaction((TransactionArchive) archive);
+			break;
+		case OPERATOR_UPDATE_TRANSACTION:
+			super.updateTransaction((TransactionArchive) archive);
+			break;
+		case OPERATOR_DELETE_TRANSACTION:
+			super.deleteTransaction((TransactionArchive) archive);
+			break;
+		case OPERATOR_CREATE_PARTICIPANT:
+			super.createParticipant((XAResourceArchive) archive);
+			break;
+		case OPERATOR_UPDATE_PARTICIPANT:
+			super.updateParticipant((XAResourceArchive) archive);
+			break;
+		case OPERATOR_DELETE_PARTICIPANT:
+			super.deleteParticipant((XAResourceArchive) archive);
+			break;
+		case OPERATOR_CREATE_COMPENSABLE:
+			super.createCompensable((CompensableArchive) archive);
+			break;
+		case OPERATOR_UPDATE_COMPENSABLE:
+			super.updateCompensable((CompensableArchive) archive);
+			break;
+		default:
+			logger.error("Unknown replication entry(operator= {}), ignored.", operator);
+		}
+
+		if (operator == OPERATOR_DELETE_TRANSACTION) {
+			this.replicationFences.remove(fencingKey);
+		} // end-if (operator == OPERATOR_DELETE_TRANSACTION)
+
+		return position + 4 + length;
+	}
+
+	/**
+	 * An entry is discarded once its transaction has been taken over by another instance, or once the transaction
+	 * document no longer exists or has been created by a newer version than the one which wrote the entry.
+	 */
+	private boolean isReplicationFenced(byte operator, String identifier, long version) {
+		String databaseName = CommonUtils.getApplication(this.getEndpoint()).replaceAll("\\W", "_");
+		MongoDatabase mdb = this.getMongoClient().getDatabase(databaseName);
+
+		MongoCollection<Document> locks = mdb.getCollection(MongoCompensableLock.CONSTANTS_TB_LOCKS);
+		Document lock = locks.find(Filters.eq(CONSTANTS_FD_GLOBAL, identifier)).first();
+		String owner = lock == null ? null : lock.getString("identifier");
+		if (StringUtils.isNotBlank(owner) && StringUtils.equals(owner, this.getEndpoint()) == false) {
+			logger.warn("{}| replication entry(operator= {}) discarded, the transaction is owned by {}.", identifier,
+					operator, owner);
+			return true;
+		} else if (operator == OPERATOR_CREATE_TRANSACTION) {
+			return false; // fenced by the conditional upsert
+		}
+
+		MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+		if (transactions.find(this.getTransactionFilter(identifier, version)).first() == null) {
+			logger.warn("{}| replication entry(operator= {}, version= {}) discarded, the transaction is not found.",
+					identifier, operator, version);
+			return true;
+		}
+
+		return false;
+	}
+
+	protected long getTransactionVersion() {
+		return this.replicatingVersion;
+	}
+
+	protected Bson getTransactionFilter(String identifier) {
+		return this.getTransactionFilter(identifier, this.replicatingVersion);
+	}
+
+	private Bson getTransactionFilter(String identifier, long version) {
+		return Filters.and(Filters.eq(CONSTANTS_FD_GLOBAL, identifier), Filters.lte("version", version));
+	}
+
+	/**
+	 * A replayed insert is a no-op, an insert conflicting with a document of a newer version fails with a duplicate key.
+	 */
+	protected void insertTransaction(MongoCollection<Document> collection, Document document) {
+		String identifier = document.getString(CONSTANTS_FD_GLOBAL);
+		Document target = new Document("$setOnInsert", document);
+		collection.updateOne(this.getTransactionFilter(identifier), target, new UpdateOptions().upsert(true));
+	}
+
+	/**
+	 * Called on the replicator thread only: every error is rethrown so that the entry is retried, except the duplicate
+	 * key error of a fenced insert.
+	 */
+	protected void fireWriteError(Exception error, boolean rollbackRequired) {
+		if (com.mongodb.MongoWriteException.class.isInstance(error)
+				&& ((com.mongodb.MongoWriteException) error).getError().getCode() == MONGODB_ERROR_DUPLICATE_KEY) {
+			return;
+		} else if (RuntimeException.class.isInstance(error)) {
+			throw (RuntimeException) error;
+		} else {
+			throw new IllegalStateException(error);
+		}
+	}
+
+	public void recover(TransactionRecoveryCallback callback) {
+		this.waitForReplication();
+		super.recover(callback);
+	}
+
+	private void waitForReplication() {
+		long deadline = System.currentTimeMillis() + this.replicationTimeoutMillis;
+		try {
+			this.lock.lock();
+			while (this.released == false && this.readPosition < this.writePosition) {
+				long waitingMillis = deadline - System.currentTimeMillis();
+				if (waitingMillis <= 0) {
+					throw new IllegalStateException(String.format(
+							"Replication to mongodb has not caught up in %s ms(pending= %s bytes)!",
+							this.replicationTimeoutMillis, this.writePosition - this.readPosition));
+				}
+
+				try {
+					this.changed.await(Math.min(waitingMillis, 100), TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+					logger.debug(ex.getMessage());
+				}
+			} // end-while (this.released == false && this.readPosition < this.writePosition)
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void waitForAppend(long millis) {
+		try {
+			this.lock.lock();
+			if (this.readPosition >= this.writePosition) {
+				this.changed.await(millis, TimeUnit.MILLISECONDS);
+			} // end-if (this.readPosition >= this.writePosition)
+		} catch (InterruptedException ex) {
+			logger.debug(ex.getMessage());
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void truncateIfNecessary() {
+		try {
+			this.forceLock.lock(); // the force lock is always acquired before the append lock
+			this.lock.lock();
+			if (this.readPosition < this.writePosition) {
+				return;
+			} else if (this.writePosition - CONSTANTS_HEADER_SIZE >= this.truncateThreshold) {
+				// truncate before rewinding the header, replaying old entries after a crash must never happen.
+				this.channel.truncate(CONSTANTS_HEADER_SIZE);
+				this.writeHeader(CONSTANTS_HEADER_SIZE);
+				this.readPosition = CONSTANTS_HEADER_SIZE;
+				this.writePosition = CONSTANTS_HEADER_SIZE;
+				this.forcedPosition = CONSTANTS_HEADER_SIZE;
+			}
+			this.changed.signalAll(); // replication has caught up
+		} catch (IOException ex) {
+			logger.error("Error occurred while truncating the replication log.", ex);
+		} finally {
+			this.lock.unlock();
+			this.forceLock.unlock();
+		}
+	}
+
+	private void writeHeader(long position) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(CONSTANTS_HEADER_SIZE);
+		header.putLong(position);
+		header.flip();
+		this.write(header, 0);
+		this.channel.force(false);
+	}
+
+	private void write(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private void read(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (this.channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+
+	protected void waitingFor(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			logger.debug(ex.getMessage());
+		}
+	}
+
+	public void destroy() {
+		this.released = true;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(Durability durability) {
+		this.durability = durability == null || Durability.DEFAULT.equals(durability) ? Durability.SYNC : durability;
+	}
+
+	public long getAsyncFlushMillis() {
+		return asyncFlushMillis;
+	}
+
+	public void setAsyncFlushMillis(long asyncFlushMillis) {
+		this.asyncFlushMillis = asyncFlushMillis;
+	}
+
+	public long getGroupCommitMillis() {
+		return groupCommitMillis;
+	}
+
+	public void setGroupCommitMillis(long groupCommitMillis) {
+		this.groupCommitMillis = groupCommitMillis;
+	}
+
+	public long getTruncateThreshold() {
+		return truncateThreshold;
+	}
+
+	public void setTruncateThreshold(long truncateThreshold) {
+		this.truncateThreshold = truncateThreshold;
+	}
+
+	public long getReplicationTimeoutMillis() {
+		return replicationTimeoutMillis;
+	}
+
+	public void setReplicationTimeoutMillis(long replicationTimeoutMillis) {
+		this.replicationTimeoutMillis = replicationTimeoutMillis;
+	}
+
+}
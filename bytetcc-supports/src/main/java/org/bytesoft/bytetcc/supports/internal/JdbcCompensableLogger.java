@@ -0,0 +1,355 @@
+/**
+ * Copyright 2014-2018 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.archive.CompensableArchive;
+import org.bytesoft.compensable.archive.TransactionArchive;
+import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
+import org.bytesoft.compensable.aware.CompensableEndpointAware;
+import org.bytesoft.compensable.logging.CompensableLogger;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the compensable archives in the table bytetcc(see bytetcc.sql). The connections are obtained from the
+ * business DataSource wrapped by LocalXADataSourcePostProcessor, so the records written in a try phase commit
+ * atomically with the business data.
+ */
+public class JdbcCompensableLogger implements CompensableLogger, CompensableEndpointAware, CompensableBeanFactoryAware {
+	static Logger logger = LoggerFactory.getLogger(JdbcCompensableLogger.class);
+
+	static final int RECORD_TYPE_TRANSACTION = 1;
+	static final int RECORD_TYPE_PARTICIPANT = 2;
+	static final int RECORD_TYPE_COMPENSABLE = 3;
+
+	@javax.inject.Inject
+	private CompensableBeanFactory beanFactory;
+	private String endpoint;
+	@javax.annotation.Resource
+	private DataSource dataSource;
+	private String tableName = "bytetcc";
+
+	public void createTransaction(TransactionArchive archive) {
+		this.writeQuietly(RECORD_TYPE_TRANSACTION, archive.getXid(), archive);
+	}
+
+	public void updateTransactionVariables(TransactionArchive archive) {
+		this.writeQuietly(RECORD_TYPE_TRANSACTION, archive.getXid(), archive);
+	}
+
+	public void updateTransactionStatus(TransactionArchive archive) {
+		this.writeQuietly(RECORD_TYPE_TRANSACTION, archive.getXid(), archive);
+	}
+
+	public void updateTransactionRecoveryStatus(TransactionArchive archive) {
+		this.writeQuietly(RECORD_TYPE_TRANSACTION, archive.getXid(), archive);
+	}
+
+	public void deleteTransaction(TransactionArchive archive) {
+		String gxid = ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId());
+
+		Connection conn = null;
+		PreparedStatement stmt = null;
+		try {
+			conn = this.dataSource.getConnection();
+			stmt = conn.prepareStatement(String.format("delete from %s where gxid = ? and endpoint = ?", this.tableName));
+			stmt.setString(1, gxid);
+			stmt.setString(2, this.endpoint);
+			stmt.executeUpdate();
+		} catch (SQLException ex) {
+			logger.error("{}| Error occurred while deleting transaction.", gxid, ex);
+		} catch (RuntimeException ex) {
+			logger.error("{}| Error occurred while deleting transaction.", gxid, ex);
+		} finally {
+			this.closeQuietly(stmt);
+			this.closeQuietly(conn);
+		}
+	}
+
+	public void createParticipant(XAResourceArchive archive) {
+		this.writeQuietly(RECORD_TYPE_PARTICIPANT, archive.getXid(), archive);
+	}
+
+	public void updateParticipantStatus(XAResourceArchive archive) {
+		this.writeQuietly(RECORD_TYPE_PARTICIPANT, archive.getXid(), archive);
+	}
+
+	public void deleteParticipant(XAResourceArchive archive) {
+		Xid xid = archive.getXid();
+		String gxid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+		String bxid = ByteUtils.byteArrayToString(xid.getBranchQualifier());
+
+		Connection conn = null;
+		PreparedStatement stmt = null;
+		try {
+			conn = this.dataSource.getConnection();
+			stmt = conn.prepareStatement(String.format(
+					"delete from %s where gxid = ? and bxid = ? and rtype = ? and endpoint = ?", this.tableName));
+			stmt.setString(1, gxid);
+			stmt.setString(2, bxid);
+			stmt.setInt(3, RECORD_TYPE_PARTICIPANT);
+			stmt.setString(4, this.endpoint);
+			stmt.executeUpdate();
+		} catch (SQLException ex) {
+			logger.error("{}| Error occurred while deleting participant.", gxid, ex);
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		} catch (RuntimeException ex) {
+			logger.error("{}| Error occurred while deleting participant.", gxid, ex);
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		} finally {
+			this.closeQuietly(stmt);
+			this.closeQuietly(conn);
+		}
+	}
+
+	public void createCompensable(CompensableArchive archive) {
+		this.writeQuietly(RECORD_TYPE_COMPENSABLE, archive.getIdentifier(), archive);
+	}
+
+	public void updateCompensableInvocationResource(CompensableArchive archive) {
+		this.writeQuietly(RECORD_TYPE_COMPENSABLE, archive.getIdentifier(), archive);
+	}
+
+	public void updateCompensableInvocationStatus(CompensableArchive archive) {
+		this.writeQuietly(RECORD_TYPE_COMPENSABLE, archive.getIdentifier(), archive);
+	}
+
+	public void updateCompensableCompletionResource(CompensableArchive archive) {
+		this.writeQuietly(RECORD_TYPE_COMPENSABLE, archive.getIdentifier(), archive);
+	}
+
+	public void updateCompensableCompletionStatus(CompensableArchive archive) {
+		this.writeQuietly(RECORD_TYPE_COMPENSABLE, archive.getIdentifier(), archive);
+	}
+
+	private void writeQuietly(int recordType, Xid xid, Object archive) {
+		String gxid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+		try {
+			this.write(recordType, (TransactionXid) xid, archive);
+		} catch (SQLException ex) {
+			logger.error("{}| Error occurred while writing compensable log(type= {}).", gxid, recordType, ex);
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		} catch (RuntimeException ex) {
+			logger.error("{}| Error occurred while writing compensable log(type= {}).", gxid, recordType, ex);
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		}
+	}
+
+	/**
+	 * Updates the record first and inserts it only if nothing was updated: a failed statement (e.g. a duplicate insert)
+	 * would abort the business transaction on some databases, such as PostgreSQL.
+	 */
+	private void write(int recordType, TransactionXid xid, Object archive) throws SQLException {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+
+		String gxid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+		String bxid = recordType == RECORD_TYPE_TRANSACTION ? gxid : ByteUtils.byteArrayToString(xid.getBranchQualifier());
+		byte[] content = deserializer.serialize(xid, archive);
+		long current = System.currentTimeMillis();
+
+		Connection conn = null;
+		try {
+			conn = this.dataSource.getConnection(); // enlisted in the business transaction while it is active
+			if (this.update(conn, gxid, bxid, recordType, content, current) == 0) {
+				this.insert(conn, gxid, bxid, recordType, content, current);
+			}
+		} finally {
+			this.closeQuietly(conn);
+		}
+	}
+
+	private void insert(Connection conn, String gxid, String bxid, int recordType, byte[] content, long current)
+			throws SQLException {
+		PreparedStatement stmt = null;
+		try {
+			stmt = conn.prepareStatement(String.format(
+					"insert into %s(gxid, bxid, rtype, endpoint, content, ctime, mtime) values(?, ?, ?, ?, ?, ?, ?)",
+					this.tableName));
+			stmt.setString(1, gxid);
+			stmt.setString(2, bxid);
+			stmt.setInt(3, recordType);
+			stmt.setString(4, this.endpoint);
+			stmt.setBytes(5, content);
+			stmt.setLong(6, current);
+			stmt.setLong(7, current);
+			stmt.executeUpdate();
+		} finally {
+			this.closeQuietly(stmt);
+		}
+	}
+
+	private int update(Connection conn, String gxid, String bxid, int recordType, byte[] content, long current)
+			throws SQLException {
+		PreparedStatement stmt = null;
+		try {
+			stmt = conn.prepareStatement(String.format(
+					"update %s set content = ?, mtime = ? where gxid = ? and bxid = ? and rtype = ? and endpoint = ?",
+					this.tableName));
+			stmt.setBytes(1, content);
+			stmt.setLong(2, current);
+			stmt.setString(3, gxid);
+			stmt.setString(4, bxid);
+			stmt.setInt(5, recordType);
+			stmt.setString(6, this.endpoint);
+			return stmt.executeUpdate();
+		} finally {
+			this.closeQuietly(stmt);
+		}
+	}
+
+	public void recover(TransactionRecoveryCallback callback) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+
+		Map<String, TransactionArchive> archiveMap = new LinkedHashMap<String, TransactionArchive>();
+
+		Connection conn = null;
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		try {
+			conn = this.dataSource.getConnection();
+			stmt = conn.prepareStatement(String.format(
+					"select gxid, rtype, content from %s where endpoint = ? order by gxid, rtype", this.tableName));
+			stmt.setString(1, this.endpoint);
+			rs = stmt.executeQuery();
+			while (rs.next()) {
+				String gxid = rs.getString("gxid");
+				int recordType = rs.getInt("rtype");
+				byte[] content = rs.getBytes("content");
+
+				TransactionXid xid = xidFactory.createGlobalXid(ByteUtils.stringToByteArray(gxid));
+				Object obj = deserializer.deserialize(xid, content);
+				if (recordType == RECORD_TYPE_TRANSACTION) {
+					archiveMap.put(gxid, (TransactionArchive) obj);
+					continue;
+				}
+
+				TransactionArchive archive = archiveMap.get(gxid);
+				if (archive == null) {
+					logger.error("{}| Error occurred while recovering compensable log(type= {}).", gxid, recordType);
+				} else if (recordType == RECORD_TYPE_PARTICIPANT) {
+					this.mergeParticipant(archive, (XAResourceArchive) obj);
+				} else if (recordType == RECORD_TYPE_COMPENSABLE) {
+					this.mergeCompensable(archive, (CompensableArchive) obj);
+				}
+			} // end-while (rs.next())
+		} catch (SQLException ex) {
+			logger.error("Error occurred while recovering compensable log.", ex);
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while recovering compensable log.", ex);
+		} finally {
+			this.closeQuietly(rs);
+			this.closeQuietly(stmt);
+			this.closeQuietly(conn);
+		}
+
+		for (Iterator<Map.Entry<String, TransactionArchive>> itr = archiveMap.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, TransactionArchive> entry = itr.next();
+			TransactionArchive archive = entry.getValue();
+			try {
+				callback.recover(archive);
+			} catch (RuntimeException rex) {
+				logger.error("{}| Error occurred while recovering transaction.", entry.getKey(), rex);
+			}
+		}
+	}
+
+	private void mergeParticipant(TransactionArchive archive, XAResourceArchive resourceArchive) {
+		List<XAResourceArchive> remoteResources = archive.getRemoteResources();
+		for (int i = 0; i < remoteResources.size(); i++) {
+			XAResourceArchive element = remoteResources.get(i);
+			if (resourceArchive.getXid().equals(element.getXid())) {
+				remoteResources.set(i, resourceArchive);
+				return;
+			}
+		}
+		remoteResources.add(resourceArchive);
+	}
+
+	private void mergeCompensable(TransactionArchive archive, CompensableArchive compensableArchive) {
+		List<CompensableArchive> compensables = archive.getCompensableResourceList();
+		for (int i = 0; i < compensables.size(); i++) {
+			CompensableArchive element = compensables.get(i);
+			if (compensableArchive.getIdentifier().equals(element.getIdentifier())) {
+				compensables.set(i, compensableArchive);
+				return;
+			}
+		}
+		compensables.add(compensableArchive);
+	}
+
+	private void closeQuietly(AutoCloseable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (Exception ex) {
+				logger.debug("Error occurred while closing resource {}.", closeable, ex);
+			}
+		}
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.endpoint = identifier;
+	}
+
+	public CompensableBeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(CompensableBeanFactory tbf) {
+		this.beanFactory = tbf;
+	}
+
+}
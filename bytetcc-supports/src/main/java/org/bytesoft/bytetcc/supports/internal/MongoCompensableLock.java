@@ -21,7 +21,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -47,7 +52,10 @@ import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.compensable.aware.CompensableEndpointAware;
 import org.bytesoft.transaction.TransactionLock;
+import org.bytesoft.transaction.TransactionRecovery;
+import org.bytesoft.transaction.cmd.CommandDispatcher;
 import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.SmartInitializingSingleton;
@@ -94,6 +102,10 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 
 	private volatile int initializeWaitingSeconds = 15;
 
+	private int takeoverThreads = 4;
+	private int takeoverQueueSize = 1024;
+	private transient ThreadPoolExecutor takeoverExecutor;
+
 	public void afterSingletonsInstantiated() {
 		try {
 			this.afterPropertiesSet();
@@ -107,6 +119,8 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 			this.initializeIndexIfNecessary();
 		}
 
+		this.initializeTakeoverExecutor();
+
 		this.curatorFramework.blockUntilConnected();
 		this.curatorFramework.getConnectionStateListenable().addListener(this);
 
@@ -116,6 +130,19 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		this.initializeClusterInstanceConfig(true);
 	}
 
+	private void initializeTakeoverExecutor() {
+		final AtomicInteger counter = new AtomicInteger();
+		this.takeoverExecutor = new ThreadPoolExecutor(this.takeoverThreads, this.takeoverThreads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(this.takeoverQueueSize), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "bytetcc-takeover-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.takeoverExecutor.allowCoreThreadTimeOut(true);
+	}
+
 	private void initializeClusterInstancesDirectory() throws Exception {
 		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
 		try {
@@ -363,12 +390,23 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	public void unlockTransaction(TransactionXid transactionXid, String identifier) {
-		if (this.reExitTransactionInMongoDB(transactionXid, identifier)) {
-			this.unlockTransactionInMongoDB(transactionXid, identifier);
+		if (this.unlockTransactionInMongoDB(transactionXid, identifier)) {
+			return;
+		} else if (this.reExitTransactionInMongoDB(transactionXid)) {
+			return;
+		}
+
+		// the lock may have been exited concurrently, try to release it once more.
+		if (this.unlockTransactionInMongoDB(transactionXid, identifier) == false) {
+			byte[] global = transactionXid.getGlobalTransactionId();
+			logger.warn("Error occurred while unlocking transaction(gxid= {}).", ByteUtils.byteArrayToString(global));
 		}
 	}
 
-	public boolean reExitTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
+	/**
+	 * Decrements the reentrant counter, only matches the lock which has been re-entered.
+	 */
+	private boolean reExitTransactionInMongoDB(TransactionXid transactionXid) {
 		byte[] global = transactionXid.getGlobalTransactionId();
 		String instanceId = ByteUtils.byteArrayToString(global);
 
@@ -378,28 +416,23 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
 			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
 
-			Bson condition = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
-
-			Document increases = new Document();
-			increases.append("times", -1);
-
-			Document document = new Document();
-			document.append("$inc", increases);
+			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
+			Bson timesFilter = Filters.gt("times", 0);
 
-			Document target = collection.findOneAndUpdate(condition, document, new FindOneAndUpdateOptions().upsert(true));
-			Integer times = target == null ? null : target.getInteger("times");
+			Document document = new Document("$inc", new Document("times", -1));
 
-			return times == null ? true : times <= 0;
-		} catch (com.mongodb.MongoWriteException error) {
-			logger.error("Error occurred while locking transaction(gxid= {}).", instanceId, error);
-			return true;
+			UpdateResult result = collection.updateOne(Filters.and(globalFilter, timesFilter), document);
+			return result.getMatchedCount() == 1;
 		} catch (RuntimeException rex) {
-			logger.error("Error occurred while locking transaction(gxid= {}).", instanceId, rex);
+			logger.error("Error occurred while unlocking transaction(gxid= {}).", instanceId, rex);
 			return true;
 		}
 	}
 
-	public void unlockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
+	/**
+	 * Deletes the lock in a single round trip if it has not been re-entered.
+	 */
+	private boolean unlockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
 		byte[] global = transactionXid.getGlobalTransactionId();
 		String instanceId = ByteUtils.byteArrayToString(global);
 
@@ -411,13 +444,13 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 
 			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
 			Bson instIdFilter = Filters.eq("identifier", identifier);
+			Bson timesFilter = Filters.lte("times", 0);
 
-			DeleteResult result = collection.deleteOne(Filters.and(globalFilter, instIdFilter));
-			if (result.getDeletedCount() == 0) {
-				logger.warn("Error occurred while unlocking transaction(gxid= {}).", instanceId);
-			}
+			DeleteResult result = collection.deleteOne(Filters.and(globalFilter, instIdFilter, timesFilter));
+			return result.getDeletedCount() == 1;
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while unlocking transaction(gxid= {})!", instanceId, rex);
+			return true;
 		}
 	}
 
@@ -440,6 +473,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 				for (Iterator<String> itr = deleted.iterator(); itr.hasNext();) {
 					String element = itr.next();
 					this.instances.remove(element);
+					this.fireTakeoverTransactions(element);
 				}
 
 				for (Iterator<String> itr = created.iterator(); itr.hasNext();) {
@@ -480,6 +514,83 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		}
 	}
 
+	/**
+	 * Recovers the transactions locked by a departed instance on the takeover pool, on the master node only. Tasks
+	 * rejected by the bounded pool are left to the timing recovery.
+	 */
+	private void fireTakeoverTransactions(final String instanceId) {
+		if (StringUtils.equals(instanceId, this.endpoint)) {
+			return;
+		}
+
+		try {
+			this.takeoverExecutor.execute(new Runnable() {
+				public void run() {
+					takeoverTransactions(instanceId);
+				}
+			});
+		} catch (RejectedExecutionException rex) {
+			logger.warn("Takeover of instance(id= {}) is deferred to the timing recovery.", instanceId);
+		}
+	}
+
+	private void takeoverTransactions(final String instanceId) {
+		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
+		if (MongoCompensableRecovery.class.isInstance(compensableRecovery) == false) {
+			return;
+		}
+
+		final MongoCompensableRecovery mongoCompensableRecovery = (MongoCompensableRecovery) compensableRecovery;
+		CommandDispatcher commandDispatcher = mongoCompensableRecovery.getCommandDispatcher();
+		try {
+			commandDispatcher.dispatch(new Runnable() {
+				public void run() {
+					takeoverTransactions(mongoCompensableRecovery, instanceId);
+				}
+			});
+		} catch (SecurityException error) {
+			// Only the master node can perform the recovery operation!
+			logger.debug("Takeover of instance(id= {}) is left to the master node.", instanceId);
+		} catch (Exception error) {
+			logger.error("Error occurred while taking over transactions of instance(id= {}).", instanceId, error);
+		}
+	}
+
+	private void takeoverTransactions(final MongoCompensableRecovery mongoCompensableRecovery, String instanceId) {
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+
+		MongoCursor<Document> lockCursor = null;
+		try {
+			String application = CommonUtils.getApplication(this.endpoint);
+			String databaseName = application.replaceAll("\\W", "_");
+			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
+			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+
+			FindIterable<Document> lockItr = collection.find(Filters.eq("identifier", instanceId));
+			int total = 0, deferred = 0;
+			for (lockCursor = lockItr.iterator(); lockCursor.hasNext(); total++) {
+				Document document = lockCursor.next();
+				String global = document.getString(CONSTANTS_FD_GLOBAL);
+				final TransactionXid transactionXid = xidFactory.createGlobalXid(ByteUtils.stringToByteArray(global));
+				try {
+					this.takeoverExecutor.execute(new Runnable() {
+						public void run() {
+							mongoCompensableRecovery.takeoverTransaction(transactionXid);
+						}
+					});
+				} catch (RejectedExecutionException rex) {
+					deferred++;
+				}
+			} // end-for (lockCursor = lockItr.iterator(); lockCursor.hasNext(); total++)
+
+			logger.info("Takeover of instance(id= {}): total= {}, deferred= {}.", instanceId, total, deferred);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while taking over transactions of instance(id= {}).", instanceId, rex);
+		} finally {
+			IOUtils.closeQuietly(lockCursor);
+		}
+	}
+
 	public void process(WatchedEvent event) throws Exception {
 		if (EventType.NodeChildrenChanged.equals(event.getType())) {
 			this.processNodeChildrenChanged(event);
@@ -516,6 +627,22 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		this.initializeWaitingSeconds = initializeWaitingSeconds;
 	}
 
+	public int getTakeoverThreads() {
+		return takeoverThreads;
+	}
+
+	public void setTakeoverThreads(int takeoverThreads) {
+		this.takeoverThreads = takeoverThreads;
+	}
+
+	public int getTakeoverQueueSize() {
+		return takeoverQueueSize;
+	}
+
+	public void setTakeoverQueueSize(int takeoverQueueSize) {
+		this.takeoverQueueSize = takeoverQueueSize;
+	}
+
 	public void setEndpoint(String identifier) {
 		this.endpoint = identifier;
 	}
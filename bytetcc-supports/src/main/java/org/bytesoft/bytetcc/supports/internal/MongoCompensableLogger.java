@@ -28,8 +28,10 @@ import java.util.Map;
 import javax.transaction.xa.Xid;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bytesoft.bytetcc.supports.CompensableInvocationImpl;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
@@ -82,7 +84,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 
 	public void createTransaction(TransactionArchive archive) {
 		try {
-			long version = this.versionManager.getInstanceVersion(this.endpoint);
+			long version = this.getTransactionVersion();
 			if (version <= 0) {
 				throw new IllegalStateException(String.format("Invalid version(%s)!", this.endpoint));
 			}
@@ -125,13 +127,13 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			document.append("recovered_at", archive.getRecoveredAt() == 0 ? null : new Date(archive.getRecoveredAt()));
 			document.append("recovered_times", archive.getRecoveredTimes());
 
-			collection.insertOne(document);
+			this.insertTransaction(collection, document);
 		} catch (IOException error) {
 			logger.error("Error occurred while creating transaction.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while creating transaction.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 
 	}
@@ -174,7 +176,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 
 			document.append("$set", target);
 
-			UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, identifier), document);
+			UpdateResult result = collection.updateOne(this.getTransactionFilter(identifier), document);
 			if (result.getMatchedCount() != 1) {
 				throw new IllegalStateException(
 						String.format("Error occurred while updating transaction(matched= %s, modified= %s).",
@@ -182,10 +184,10 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			}
 		} catch (IOException error) {
 			logger.error("Error occurred while updating transaction.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while updating transaction.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -251,10 +253,10 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			CompensableInvocation invocation = resource.getCompensable();
 			String beanId = (String) invocation.getIdentifier();
 
-			Method method = invocation.getMethod();
+			Method method = this.getCompensableMethod(invocation);
 			Object[] args = invocation.getArgs();
 
-			String methodDesc = SerializeUtils.serializeMethod(invocation.getMethod());
+			String methodDesc = SerializeUtils.serializeMethod(method);
 			byte[] argsByteArray = SerializeUtils.serializeObject(args);
 			String argsValue = ByteUtils.byteArrayToString(argsByteArray);
 
@@ -308,21 +310,46 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
 			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
 
-			DeleteResult result = transactions.deleteOne(Filters.eq(CONSTANTS_FD_GLOBAL, identifier));
+			DeleteResult result = transactions.deleteOne(this.getTransactionFilter(identifier));
 			if (result.getDeletedCount() != 1) {
 				logger.error("Error occurred while deleting transaction(deleted= {}).", result.getDeletedCount());
 			}
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while deleting transaction!", error);
+			this.fireWriteError(error, false);
 		}
 	}
 
+	/**
+	 * The version recorded in a newly created transaction document, it is the version of the current instance.
+	 */
+	protected long getTransactionVersion() {
+		return this.versionManager.getInstanceVersion(this.endpoint);
+	}
+
+	protected Bson getTransactionFilter(String identifier) {
+		return Filters.eq(CONSTANTS_FD_GLOBAL, identifier);
+	}
+
+	protected void insertTransaction(MongoCollection<Document> collection, Document document) {
+		collection.insertOne(document);
+	}
+
+	/**
+	 * Invoked after a write to mongodb failed, the current transaction is marked rollback-only if required.
+	 */
+	protected void fireWriteError(Exception error, boolean rollbackRequired) {
+		if (rollbackRequired) {
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		} // end-if (rollbackRequired)
+	}
+
 	public void createParticipant(XAResourceArchive archive) {
 		try {
 			this.upsertParticipant(archive);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while creating participant!", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -331,7 +358,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			this.upsertParticipant(archive);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while updating participant.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -378,7 +405,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		Document document = new Document();
 		document.append("$set", participants);
 
-		UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+		UpdateResult result = collection.updateOne(this.getTransactionFilter(globalKey), document);
 		if (result.getMatchedCount() != 1) {
 			throw new IllegalStateException(
 					String.format("Error occurred while creating/updating participant(matched= %s, modified= %s).",
@@ -406,7 +433,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			Document document = new Document();
 			document.append("$unset", participants);
 
-			UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+			UpdateResult result = collection.updateOne(this.getTransactionFilter(globalKey), document);
 			if (result.getMatchedCount() != 1) {
 				throw new IllegalStateException(
 						String.format("Error occurred while deleting participant(matched= %s, modified= %s).",
@@ -414,7 +441,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			}
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while deleting participant.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -423,10 +450,10 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			this.upsertCompensable(archive);
 		} catch (IOException error) {
 			logger.error("Error occurred while creating compensable.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while creating compensable.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -447,10 +474,10 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			this.upsertCompensable(archive);
 		} catch (IOException error) {
 			logger.error("Error occurred while updating compensable.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		} catch (RuntimeException error) {
 			logger.error("Error occurred while updating compensable.", error);
-			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+			this.fireWriteError(error, true);
 		}
 	}
 
@@ -463,10 +490,10 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		CompensableInvocation invocation = archive.getCompensable();
 		String beanId = (String) invocation.getIdentifier();
 
-		Method method = invocation.getMethod();
+		Method method = this.getCompensableMethod(invocation);
 		Object[] args = invocation.getArgs();
 
-		String methodDesc = SerializeUtils.serializeMethod(invocation.getMethod());
+		String methodDesc = SerializeUtils.serializeMethod(method);
 		byte[] argsByteArray = SerializeUtils.serializeObject(args);
 		String argsValue = ByteUtils.byteArrayToString(argsByteArray);
 
@@ -508,7 +535,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		Document document = new Document();
 		document.append("$set", compensables);
 
-		UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+		UpdateResult result = collection.updateOne(this.getTransactionFilter(globalKey), document);
 		if (result.getMatchedCount() != 1) {
 			throw new IllegalStateException(
 					String.format("Error occurred while creating/updating compensable(matched= %s, modified= %s).",
@@ -597,6 +624,35 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		return archive;
 	}
 
+	/**
+	 * The method of a deserialized invocation, such as one replayed from the local replication log, is not resolved yet.
+	 */
+	private Method getCompensableMethod(CompensableInvocation invocation) throws IOException {
+		if (invocation.getMethod() != null) {
+			return invocation.getMethod();
+		}
+
+		String declaringClass = invocation.getDeclaringClass();
+		String[] parameterTypeArray = invocation.getParameterTypeArray();
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		cl = cl == null ? MongoCompensableLogger.class.getClassLoader() : cl;
+		try {
+			Class<?> clazz = cl.loadClass(declaringClass);
+			Class<?>[] parameterTypes = new Class<?>[parameterTypeArray == null ? 0 : parameterTypeArray.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				parameterTypes[i] = ClassUtils.getClass(cl, parameterTypeArray[i], false);
+			}
+			Method method = clazz.getDeclaredMethod(invocation.getMethodName(), parameterTypes);
+			invocation.setMethod(method);
+			return method;
+		} catch (ClassNotFoundException ex) {
+			throw new IOException(String.format("Error occurred while loading class: %s", declaringClass), ex);
+		} catch (NoSuchMethodException ex) {
+			throw new IOException(String.format("Error occurred: class= %s, method= %s", declaringClass,
+					invocation.getMethodName()), ex);
+		}
+	}
+
 	private List<XAResourceArchive> constructParticipantList(Document document) {
 		XidFactory compensableXidFactory = this.beanFactory.getCompensableXidFactory();
 
@@ -803,6 +859,22 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		this.initializeEnabled = initializeEnabled;
 	}
 
+	public MongoClient getMongoClient() {
+		return mongoClient;
+	}
+
+	public void setMongoClient(MongoClient mongoClient) {
+		this.mongoClient = mongoClient;
+	}
+
+	public CompensableInstVersionManager getVersionManager() {
+		return versionManager;
+	}
+
+	public void setVersionManager(CompensableInstVersionManager versionManager) {
+		this.versionManager = versionManager;
+	}
+
 	public CompensableBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
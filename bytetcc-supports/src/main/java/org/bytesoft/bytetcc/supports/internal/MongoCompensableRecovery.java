@@ -15,8 +15,17 @@
  */
 package org.bytesoft.bytetcc.supports.internal;
 
+import javax.transaction.SystemException;
+
 import org.bytesoft.bytetcc.TransactionRecoveryImpl;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.CommitRequiredException;
+import org.bytesoft.transaction.RollbackRequiredException;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.cmd.CommandDispatcher;
+import org.bytesoft.transaction.xa.TransactionXid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +53,43 @@ public class MongoCompensableRecovery extends TransactionRecoveryImpl {
 
 	private void fireSuperTimingRecovery() {
 		super.timingRecover();
+
+		TransactionRepository transactionRepository = this.getBeanFactory().getCompensableRepository();
+		if (MongoCompensableRepository.class.isInstance(transactionRepository)) {
+			((MongoCompensableRepository) transactionRepository).sweepExpiredRollbackMarkers();
+		} // end-if (MongoCompensableRepository.class.isInstance(transactionRepository))
+	}
+
+	/**
+	 * Recovers a transaction whose owner instance has left the cluster, without waiting for the next recovery cycle.
+	 */
+	public void takeoverTransaction(TransactionXid xid) {
+		TransactionRepository transactionRepository = this.getBeanFactory().getCompensableRepository();
+		String global = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+		try {
+			Transaction transaction = transactionRepository.getTransaction(xid);
+			if (transaction == null) {
+				return; // completed
+			}
+
+			TransactionContext transactionContext = (TransactionContext) transaction.getTransactionContext();
+			if (transactionContext.isCoordinator() == false) {
+				return;
+			} else if (transactionContext.isCompensable()) {
+				this.recoverStatusIfNecessary(transaction);
+			}
+
+			this.recoverTransaction(transaction);
+			logger.info("{}| takeover: transaction has been recovered.", global);
+		} catch (CommitRequiredException ex) {
+			logger.debug("{}| takeover: message= commit-required", global);
+		} catch (RollbackRequiredException ex) {
+			logger.debug("{}| takeover: message= rollback-required", global);
+		} catch (SystemException ex) {
+			logger.debug("{}| takeover: message= {}", global, ex.getMessage(), ex);
+		} catch (Exception ex) {
+			logger.debug("{}| takeover: message= {}", global, ex.getMessage(), ex);
+		}
 	}
 
 	public CommandDispatcher getCommandDispatcher() {
@@ -17,7 +17,12 @@ package org.bytesoft.bytetcc.supports.internal;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.transaction.Status;
 import javax.transaction.SystemException;
@@ -30,6 +35,7 @@ import org.apache.curator.framework.api.BackgroundCallback;
 import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.CuratorEventType;
 import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.WatchedEvent;
@@ -72,6 +78,7 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	static final String CONSTANTS_TB_TRANSACTIONS = "compensables";
 	static final String CONSTANTS_FD_GLOBAL = "gxid";
 	static final String CONSTANTS_FD_BRANCH = "bxid";
+	static final int CONSTANTS_ROLLBACK_BUCKETS = 256;
 
 	@javax.annotation.Resource
 	private CuratorFramework curatorFramework;
@@ -86,6 +93,12 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	private CommandDispatcher commandDispatcher;
 
 	private long rollbackEntryExpireTime = 1000L * 60 * 5;
+	private int rollbackSweepBatchSize = 100;
+
+	/* known children of the rollback directory and of each bucket, keyed by parent path. */
+	private final Map<String, Set<String>> rollbackChildren = new ConcurrentHashMap<String, Set<String>>();
+	/* creation time of the rollback markers which have been fetched, keyed by marker path. */
+	private final Map<String, Long> rollbackMarkers = new ConcurrentHashMap<String, Long>();
 
 	public void afterSingletonsInstantiated() {
 		try {
@@ -109,11 +122,38 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		} catch (NodeExistsException nex) {
 			logger.debug("Path exists(path= {})!", parent); // ignore
 		}
+
+		for (int i = 0; i < CONSTANTS_ROLLBACK_BUCKETS; i++) {
+			String bucket = String.format("%s/%s", parent, this.getRollbackBucket(i));
+			try {
+				this.curatorFramework.create().withMode(CreateMode.PERSISTENT).forPath(bucket);
+			} catch (NodeExistsException nex) {
+				logger.debug("Path exists(path= {})!", bucket); // ignore
+			}
+		}
 	}
 
 	private void listenRollbackTransactionAndRegisterWatcher() throws Exception {
 		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
-		this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent);
+		this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent); // legacy markers
+		for (int i = 0; i < CONSTANTS_ROLLBACK_BUCKETS; i++) {
+			String bucket = String.format("%s/%s", parent, this.getRollbackBucket(i));
+			this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(bucket);
+		}
+	}
+
+	private String getRollbackBucket(int index) {
+		return Integer.toHexString(CONSTANTS_ROLLBACK_BUCKETS | index).substring(1);
+	}
+
+	private String getRollbackPath(String global) {
+		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		int index = (global.hashCode() & 0x7FFFFFFF) % CONSTANTS_ROLLBACK_BUCKETS;
+		return String.format("%s/%s/%s", parent, this.getRollbackBucket(index), global);
+	}
+
+	private boolean isRollbackBucket(String name) {
+		return name.length() == 2;
 	}
 
 	public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
@@ -124,14 +164,34 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, system);
 		String target = event.getPath();
 		if (CuratorEventType.CHILDREN.equals(event.getType())) {
-			if (StringUtils.equalsIgnoreCase(target, parent) == false || event.getStat() == null) {
+			boolean rootRequired = StringUtils.equalsIgnoreCase(target, parent);
+			boolean bucketRequired = target.startsWith(prefix) && this.isRollbackBucket(target.substring(prefix.length()));
+			if ((rootRequired == false && bucketRequired == false) || event.getStat() == null) {
 				return;
 			}
 
 			List<String> children = event.getChildren();
-			for (int i = 0; children != null && i < children.size(); i++) {
-				String global = children.get(i);
-				String path = String.format("%s/%s", parent, global);
+			Set<String> current = children == null ? new HashSet<String>() : new HashSet<String>(children);
+			Set<String> original = this.rollbackChildren.put(target, current);
+
+			if (original != null) {
+				for (Iterator<String> itr = original.iterator(); itr.hasNext();) {
+					String element = itr.next();
+					if (current.contains(element) == false) {
+						this.rollbackMarkers.remove(String.format("%s/%s", target, element));
+					} // end-if (current.contains(element) == false)
+				}
+			} // end-if (original != null)
+
+			for (Iterator<String> itr = current.iterator(); itr.hasNext();) {
+				String element = itr.next();
+				if (original != null && original.contains(element)) {
+					continue; // fetched already
+				} else if (rootRequired && this.isRollbackBucket(element)) {
+					continue; // watched separately
+				}
+
+				String path = String.format("%s/%s", target, element);
 				this.curatorFramework.getData().inBackground(this).forPath(path);
 			}
 		} else if (CuratorEventType.GET_DATA.equals(event.getType())) {
@@ -139,15 +199,16 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 				return;
 			}
 
+			long createdAt = event.getStat().getCtime();
+			this.rollbackMarkers.put(target, createdAt);
+
 			byte[] instanceByteArray = event.getData();
 			String instanceId = instanceByteArray == null ? StringUtils.EMPTY : new String(instanceByteArray);
 			if (StringUtils.equalsIgnoreCase(this.endpoint, instanceId)) {
 				return;
 			}
 
-			int startIdx = prefix.length();
-			int endIndex = target.indexOf("/", startIdx);
-			String global = endIndex == -1 ? target.substring(startIdx) : target.substring(startIdx, endIndex);
+			String global = target.substring(target.lastIndexOf("/") + 1);
 			byte[] globalByteArray = ByteUtils.stringToByteArray(global);
 			final TransactionXid transactionXid = xidFactory.createGlobalXid(globalByteArray);
 
@@ -158,28 +219,13 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 				transaction.markBusinessStageRollbackOnly(transactionXid);
 			} // end-if (transaction != null)
 
-			long createdAt = event.getStat().getCtime();
 			long interval = System.currentTimeMillis() - createdAt;
 
 			if (interval < 0) {
 				logger.warn("The system time between servers is inconsistent.");
 			} // end-if (interval < 0)
 
-			if (interval >= this.rollbackEntryExpireTime) {
-				try {
-					this.commandDispatcher.dispatch(new Runnable() {
-						public void run() {
-							remvBusinessStageRollbackFlag(transactionXid);
-						}
-					});
-				} catch (SecurityException error) {
-					// Only the master node can perform the recovery operation!
-				} catch (RuntimeException error) {
-					logger.error("Error occurred while removing transaction rolled back status from zk!", error);
-				} catch (Exception error) {
-					logger.error("Error occurred while removing transaction rolled back status from zk!", error);
-				}
-			} else {
+			if (interval < this.rollbackEntryExpireTime) {
 				try {
 					this.commandDispatcher.dispatch(new Runnable() {
 						public void run() {
@@ -200,29 +246,60 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 
 	public void process(WatchedEvent event) throws Exception {
 		if (EventType.NodeChildrenChanged.equals(event.getType())) {
-			String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
-			this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent);
+			this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(event.getPath());
 		}
 	}
 
-	private void remvBusinessStageRollbackFlag(TransactionXid transactionXid) {
-		String global = ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId());
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
-		String target = String.format("%s/%s", parent, global);
+	/**
+	 * Removes the expired rollback markers in batches, only invoked on the master node by the timing recovery.
+	 */
+	public void sweepExpiredRollbackMarkers() {
+		long current = System.currentTimeMillis();
+		List<String> expiredList = new ArrayList<String>();
+		for (Iterator<Map.Entry<String, Long>> itr = this.rollbackMarkers.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, Long> entry = itr.next();
+			if (current - entry.getValue() >= this.rollbackEntryExpireTime) {
+				expiredList.add(entry.getKey());
+			} // end-if (current - entry.getValue() >= this.rollbackEntryExpireTime)
+		}
+
+		for (int i = 0; i < expiredList.size(); i += this.rollbackSweepBatchSize) {
+			List<String> pathList = expiredList.subList(i, Math.min(i + this.rollbackSweepBatchSize, expiredList.size()));
+			this.remvBusinessStageRollbackFlags(pathList);
+		}
+	}
+
+	private void remvBusinessStageRollbackFlags(List<String> pathList) {
 		try {
-			this.curatorFramework.delete().inBackground(this).forPath(target);
+			List<CuratorOp> operations = new ArrayList<CuratorOp>();
+			for (int i = 0; i < pathList.size(); i++) {
+				operations.add(this.curatorFramework.transactionOp().delete().forPath(pathList.get(i)));
+			}
+			this.curatorFramework.transaction().forOperations(operations);
 		} catch (Exception error) {
-			logger.warn("Error occurred while deleting zookeeper path({}).", target);
+			// the multi-op fails as a whole when any marker has been removed already, delete them one by one.
+			for (int i = 0; i < pathList.size(); i++) {
+				String target = pathList.get(i);
+				try {
+					this.curatorFramework.delete().inBackground(this).forPath(target);
+				} catch (Exception ex) {
+					logger.warn("Error occurred while deleting zookeeper path({}).", target);
+				}
+			}
+		}
+
+		for (int i = 0; i < pathList.size(); i++) {
+			this.rollbackMarkers.remove(pathList.get(i));
 		}
 	}
 
 	public void markBusinessStageRollbackOnly(TransactionXid transactionXid) throws SystemException {
 		String global = ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId());
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
-		String target = String.format("%s/%s", parent, global);
+		String target = this.getRollbackPath(global);
 		try {
 			byte[] instanceByteArray = this.endpoint == null ? new byte[0] : this.endpoint.getBytes();
-			this.curatorFramework.create().withMode(CreateMode.PERSISTENT).forPath(target, instanceByteArray);
+			this.curatorFramework.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(target,
+					instanceByteArray);
 		} catch (NodeExistsException error) {
 			logger.debug("Path exists(path= {})!", target); // ignore
 		} catch (Exception error) {
@@ -440,6 +517,14 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		this.commandDispatcher = commandDispatcher;
 	}
 
+	public int getRollbackSweepBatchSize() {
+		return rollbackSweepBatchSize;
+	}
+
+	public void setRollbackSweepBatchSize(int rollbackSweepBatchSize) {
+		this.rollbackSweepBatchSize = rollbackSweepBatchSize;
+	}
+
 	public long getRollbackEntryExpireTime() {
 		return rollbackEntryExpireTime;
 	}
@@ -139,9 +139,17 @@ public class CompensableInterceptorImpl implements TransactionInterceptor, Compe
 
 		RemoteCoordinator resource = response.getSourceTransactionCoordinator();
 
+		boolean participantReadonly = org.bytesoft.compensable.TransactionContext.class.isInstance(remoteTransactionContext)
+				&& ((org.bytesoft.compensable.TransactionContext) remoteTransactionContext).isParticipantReadonly();
+
 		if (transaction == null || remoteTransactionContext == null) {
 			return;
 		} else if (participantEnlistFlag == false) {
+			if (participantReadonly == false && resource != null) {
+				RemoteResourceDescriptor descriptor = new RemoteResourceDescriptor();
+				descriptor.setDelegate(resource);
+				transaction.onParticipantVote(descriptor, false); // a read-write vote can not be overridden
+			} // end-if (participantReadonly == false && resource != null)
 			return;
 		} else if (resource == null) {
 			logger.error("CompensableInterceptorImpl.afterReceiveResponse(TransactionRequest): remote coordinator is null.");
@@ -154,6 +162,9 @@ public class CompensableInterceptorImpl implements TransactionInterceptor, Compe
 			// descriptor.setIdentifier(resource.getIdentifier());
 
 			transaction.delistResource(descriptor, participantDelistFlag ? XAResource.TMFAIL : XAResource.TMSUCCESS);
+			if (participantDelistFlag == false && participantReadonly) {
+				transaction.onParticipantVote(descriptor, true);
+			} // end-if (participantDelistFlag == false && participantReadonly)
 		} catch (IllegalStateException ex) {
 			logger.error("CompensableInterceptorImpl.afterReceiveResponse({})", response, ex);
 			throw ex;
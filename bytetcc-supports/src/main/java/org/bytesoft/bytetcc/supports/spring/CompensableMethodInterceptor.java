@@ -201,6 +201,7 @@ public class CompensableMethodInterceptor
 
 		invocation.setIdentifier(identifier);
 		invocation.setSimplified(annotation.simplified());
+		invocation.setDurability(annotation.durability());
 
 		invocation.setMethod(method); // class-method
 
@@ -233,6 +234,7 @@ public class CompensableMethodInterceptor
 
 		invocation.setIdentifier(identifier);
 		invocation.setSimplified(annotation.simplified());
+		invocation.setDurability(annotation.durability());
 
 		invocation.setMethod(interfaceMethod);
 		invocation.setConfirmableKey(annotation.confirmableKey());
@@ -4,4 +4,17 @@ CREATE TABLE bytejta (
   bxid varchar(40),
   ctime bigint(20),
   PRIMARY KEY (xid)
-);
\ No newline at end of file
+);
+
+CREATE TABLE bytetcc (
+  gxid varchar(40),
+  bxid varchar(40),
+  rtype int(1),
+  endpoint varchar(128),
+  content blob,
+  ctime bigint(20),
+  mtime bigint(20),
+  PRIMARY KEY (gxid, bxid, rtype, endpoint)
+);
+
+CREATE INDEX idx_bytetcc_endpoint ON bytetcc (endpoint);
\ No newline at end of file